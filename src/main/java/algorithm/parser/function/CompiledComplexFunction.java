@@ -0,0 +1,843 @@
+package algorithm.parser.function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The class CompiledComplexFunction.
+ *
+ * A complex function of one variable which is parsed only once, when the
+ * object is created. The string is scanned by exactly the same rules
+ * ComplexFunction.eval() uses, but instead of computing a value every step
+ * emits an ExpressionNode. The resulting tree is then optimized (see
+ * ExpressionOptimizer) and flattened into a list of nodes in evaluation order.
+ * Evaluating the function afterwards only runs through that list, so the cost
+ * of a single evaluation no longer depends on the length of the string.
+ *
+ * Use this class instead of Parser.eval() whenever the same function has to be
+ * evaluated at many points.
+ *
+ * @Author Piotr Machura
+ */
+public class CompiledComplexFunction {
+
+    /** The (space free) function string this object was compiled from */
+    private final String f;
+
+    /** The name of the variable */
+    private final String variable;
+
+    /** Whether the tree went through ExpressionOptimizer */
+    private final boolean optimized;
+
+    /** Root of the evaluation tree (a DAG once optimized) */
+    private final ExpressionNode root;
+
+    /** Every distinct node in evaluation order, root last */
+    private final ExpressionNode[] program;
+
+    /** Positions of the operands of program[k] in program, -1 if absent */
+    private final int[] leftOf;
+    private final int[] rightOf;
+
+    /** Generated kernel, created on first use of jit() */
+    private volatile ComplexKernel kernel;
+
+    /** Whether evaluate() runs the generated kernel instead of interpreting the program */
+    private final boolean useJit;
+
+    /** Buffers of the batch evaluate(), a pair per node, kept by every thread */
+    private final ThreadLocal<double[][]> scratch = new ThreadLocal<double[][]>();
+
+    /** Larger batches get buffers of their own, so that no thread holds on to huge ones */
+    static final int MAX_SCRATCH_POINTS = 1 << 14;
+
+    /** Polynomials of a higher degree are not recognized by polynomialCoefficients() */
+    static final int MAX_POLYNOMIAL_DEGREE = 1024;
+
+    /**
+     * CompiledComplexFunction constructor.
+     *
+     * Compiles and optimizes f as a function of variable z.
+     *
+     * @param f the function to compile
+     *
+     * @throws CalculatorException if the function is not well-formed
+     */
+    public CompiledComplexFunction(final String f) throws CalculatorException {
+        this(f, "z", true);
+    }
+
+    /**
+     * CompiledComplexFunction constructor.
+     *
+     * Compiles and optimizes f.
+     *
+     * @param f        the function to compile
+     * @param variable the (single letter) name of the variable
+     *
+     * @throws CalculatorException if the function is not well-formed
+     */
+    public CompiledComplexFunction(final String f, final String variable) throws CalculatorException {
+        this(f, variable, true);
+    }
+
+    /**
+     * CompiledComplexFunction constructor.
+     *
+     * @param f        the function to compile
+     * @param variable the (single letter) name of the variable
+     * @param optimize whether to optimize the tree. Without optimization the
+     *                 values are bit for bit the same as the ones Parser.eval()
+     *                 gives, with it integer powers are computed by
+     *                 multiplication and may differ by rounding.
+     *
+     * @throws CalculatorException if the function is not well-formed
+     */
+    public CompiledComplexFunction(final String f, final String variable, final boolean optimize)
+            throws CalculatorException {
+        this(f, variable, optimize, false);
+    }
+
+    /**
+     * CompiledComplexFunction constructor.
+     *
+     * @param f        the function to compile
+     * @param variable the (single letter) name of the variable
+     * @param optimize whether to optimize the tree (see above)
+     * @param jit      whether evaluate() runs the generated kernel (see jit()).
+     *                 The values are the same, points at which the kernel throws
+     *                 and functions which cannot be turned into bytecode are
+     *                 interpreted.
+     *
+     * @throws CalculatorException if the function is not well-formed
+     */
+    public CompiledComplexFunction(final String f, final String variable, final boolean optimize,
+            final boolean jit) throws CalculatorException {
+        this.f = f.trim().replaceAll(" ", "");
+        this.variable = variable.toLowerCase();
+        this.optimized = optimize;
+        this.useJit = jit;
+        ExpressionNode tree;
+        try {
+            tree = compile(this.f);
+        } catch (NumberFormatException e) {
+            throw new CalculatorException("The function is not well-formed");
+        }
+        this.root = optimize ? ExpressionOptimizer.optimize(tree) : tree;
+
+        /** Flatten the DAG, every shared node is evaluated only once */
+        final Map<ExpressionNode, Integer> index = new IdentityHashMap<ExpressionNode, Integer>();
+        final List<ExpressionNode> order = new ArrayList<ExpressionNode>();
+        flatten(root, index, order);
+        program = order.toArray(new ExpressionNode[order.size()]);
+        leftOf = new int[program.length];
+        rightOf = new int[program.length];
+        for (int k = 0; k < program.length; k++) {
+            leftOf[k] = program[k].left == null ? -1 : index.get(program[k].left);
+            rightOf[k] = program[k].right == null ? -1 : index.get(program[k].right);
+        }
+    }
+
+    private static void flatten(final ExpressionNode node, final Map<ExpressionNode, Integer> index,
+            final List<ExpressionNode> order) {
+        if (index.containsKey(node)) {
+            return;
+        }
+        if (node.left != null) {
+            flatten(node.left, index, order);
+        }
+        if (node.right != null) {
+            flatten(node.right, index, order);
+        }
+        index.put(node, order.size());
+        order.add(node);
+    }
+
+    /**
+     * isEntire.
+     *
+     * An entire function (ex. a polynomial, e^z or sin(z)) has no poles, so none
+     * of its winding numbers can be negative.
+     *
+     * @return true if f is built only of operations which have neither poles nor
+     *         branch cuts
+     */
+    public boolean isEntire() {
+        for (ExpressionNode node : program) {
+            if (!node.isEntire()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * polynomialCoefficients.
+     *
+     * Expands f into a polynomial, if it is one (ex. (z-1)*(z+2)^2 or z^3/2-i).
+     * Coefficients are computed with the same Complex operations f is evaluated
+     * with, so they may differ by rounding from the exact ones.
+     *
+     * @return coefficients a_0, a_1, ..., a_n of f = a_0 + a_1 z + ... + a_n z^n
+     *         with a_n != 0 (a single 0 if f is 0 everywhere), or null if f is not
+     *         a polynomial of degree up to MAX_POLYNOMIAL_DEGREE
+     */
+    public Complex[] polynomialCoefficients() {
+        final Complex[][] coefficients = new Complex[program.length][];
+        for (int k = 0; k < program.length; k++) {
+            final Complex[] a = leftOf[k] < 0 ? null : coefficients[leftOf[k]];
+            final Complex[] b = rightOf[k] < 0 ? null : coefficients[rightOf[k]];
+            coefficients[k] = polynomialOf(program[k], a, b);
+            if (coefficients[k] == null) {
+                return null;
+            }
+        }
+        return coefficients[program.length - 1];
+    }
+
+    /**
+     * polynomialOf.
+     *
+     * @param node the node
+     * @param a    coefficients of its left operand (null if absent)
+     * @param b    coefficients of its right operand (null if absent)
+     *
+     * @return coefficients of the node or null if it is not a polynomial
+     */
+    private static Complex[] polynomialOf(final ExpressionNode node, final Complex[] a, final Complex[] b) {
+        switch (node.operation) {
+            case CONSTANT:
+                return new Complex[] { new Complex(node.re, node.im) };
+            case VARIABLE:
+                return new Complex[] { new Complex(0, 0), new Complex(1, 0) };
+            case ADD:
+                return polynomialSum(a, b, 1);
+            case SUB:
+                return polynomialSum(a, b, -1);
+            case MUL:
+                return polynomialProduct(a, b);
+            case DIV:
+                /** Division by a (non-zero) constant only */
+                if (b.length == 1 && (b[0].getRe() != 0 || b[0].getIm() != 0) && a.length > 1) {
+                    final Complex[] quotient = new Complex[a.length];
+                    for (int i = 0; i < a.length; i++) {
+                        quotient[i] = Complex.divOrNaN(a[i], b[0]);
+                    }
+                    return quotient;
+                }
+                break;
+            case POW:
+                if (b.length == 1 && b[0].getIm() == 0 && isPolynomialDegree(b[0].getRe())) {
+                    return polynomialPower(a, (int) b[0].getRe());
+                }
+                break;
+            case POW_REAL:
+                if (isPolynomialDegree(node.re)) {
+                    return polynomialPower(a, (int) node.re);
+                }
+                break;
+            default:
+                break;
+        }
+        /** Any operation on constants gives a constant */
+        if (a.length == 1 && (b == null || b.length == 1)) {
+            try {
+                return new Complex[] { node.apply(a[0], b == null ? null : b[0]) };
+            } catch (CalculatorException e) {
+                /** Undefined (ex. 1/0) */
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPolynomialDegree(final double exponent) {
+        return exponent >= 0 && exponent <= MAX_POLYNOMIAL_DEGREE && exponent == Math.rint(exponent);
+    }
+
+    /**
+     * polynomialSum.
+     *
+     * @return a + sign*b without leading zeros
+     */
+    private static Complex[] polynomialSum(final Complex[] a, final Complex[] b, final double sign) {
+        int n = Math.max(a.length, b.length);
+        final Complex[] sum = new Complex[n];
+        for (int i = 0; i < n; i++) {
+            final Complex ai = i < a.length ? a[i] : new Complex(0, 0);
+            sum[i] = i < b.length ? Complex.add(ai, Complex.mul(sign, b[i])) : ai;
+        }
+        while (n > 1 && sum[n - 1].getRe() == 0 && sum[n - 1].getIm() == 0) {
+            n--;
+        }
+        return n == sum.length ? sum : Arrays.copyOf(sum, n);
+    }
+
+    /**
+     * polynomialProduct.
+     *
+     * @return a*b or null if its degree is too high
+     */
+    private static Complex[] polynomialProduct(final Complex[] a, final Complex[] b) {
+        if (a.length + b.length - 2 > MAX_POLYNOMIAL_DEGREE) {
+            return null;
+        }
+        final Complex[] product = new Complex[a.length + b.length - 1];
+        for (int i = 0; i < product.length; i++) {
+            product[i] = new Complex(0, 0);
+        }
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                product[i + j] = Complex.add(product[i + j], Complex.mul(a[i], b[j]));
+            }
+        }
+        return product;
+    }
+
+    /**
+     * polynomialPower.
+     *
+     * @return a^exponent (by repeated squaring) or null if its degree is too high
+     */
+    private static Complex[] polynomialPower(Complex[] a, int exponent) {
+        Complex[] power = { new Complex(1, 0) };
+        while (exponent > 0 && power != null && a != null) {
+            if ((exponent & 1) == 1) {
+                power = polynomialProduct(power, a);
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                a = polynomialProduct(a, a);
+            }
+        }
+        return exponent == 0 ? power : null;
+    }
+
+    /**
+     * getF.
+     *
+     * @return the function string
+     */
+    public String getF() {
+        return f;
+    }
+
+    /**
+     * getValue.
+     *
+     * @param z the value of the variable
+     *
+     * @return f(z)
+     *
+     * @throws CalculatorException when f is undefined at z
+     */
+    public Complex getValue(final Complex z) throws CalculatorException {
+        final Complex[] values = new Complex[program.length];
+        for (int k = 0; k < program.length; k++) {
+            final ExpressionNode node = program[k];
+            if (node.operation == ExpressionNode.Operation.VARIABLE) {
+                values[k] = z;
+            } else {
+                values[k] = node.apply(leftOf[k] < 0 ? null : values[leftOf[k]],
+                        rightOf[k] < 0 ? null : values[rightOf[k]]);
+            }
+        }
+        return values[program.length - 1];
+    }
+
+    /**
+     * getValueAndDerivative.
+     *
+     * Evaluates f and its complex derivative f' together, using forward-mode
+     * automatic differentiation (every node carries its value and derivative).
+     * Costs roughly twice as much as getValue() and, unlike finite differences,
+     * loses no precision.
+     *
+     * @param z the value of the variable
+     *
+     * @return array of 2: { f(z), f'(z) }, f'(z) is NaN where only the
+     *         derivative is undefined
+     *
+     * @throws CalculatorException when f is undefined at z
+     */
+    public Complex[] getValueAndDerivative(final Complex z) throws CalculatorException {
+        final Complex[] values = new Complex[program.length];
+        final Complex[] derivatives = new Complex[program.length];
+        for (int k = 0; k < program.length; k++) {
+            final ExpressionNode node = program[k];
+            final Complex a = leftOf[k] < 0 ? null : values[leftOf[k]];
+            final Complex da = leftOf[k] < 0 ? null : derivatives[leftOf[k]];
+            final Complex b = rightOf[k] < 0 ? null : values[rightOf[k]];
+            final Complex db = rightOf[k] < 0 ? null : derivatives[rightOf[k]];
+            values[k] = node.operation == ExpressionNode.Operation.VARIABLE ? z : node.apply(a, b);
+            derivatives[k] = node.derivative(a, da, b, db, values[k]);
+        }
+        return new Complex[] { values[program.length - 1], derivatives[program.length - 1] };
+    }
+
+    /**
+     * evaluate (batch version).
+     *
+     * Evaluates f at n points given as separate arrays of real and imaginary
+     * parts. No Complex or Variable objects are created per point and every
+     * arithmetic operation runs as a single loop over all points. Points at
+     * which f is undefined (where getValue() would throw) receive NaN. The
+     * values of the nodes go to buffers kept by the calling thread, which only
+     * a batch of more than MAX_SCRATCH_POINTS points allocates anew. A function
+     * compiled with jit on runs its generated kernel point by point instead.
+     *
+     * @param re    real parts of the points
+     * @param im    imaginary parts of the points
+     * @param outRe receives Re f at every point
+     * @param outIm receives Im f at every point
+     * @param n     number of points to evaluate
+     */
+    public void evaluate(final double[] re, final double[] im, final double[] outRe, final double[] outIm,
+            final int n) {
+        final ComplexKernel generated = this.generated();
+        if (generated != null) {
+            final double[] out = new double[2];
+            for (int i = 0; i < n; i++) {
+                this.evaluate(generated, re[i], im[i], out);
+                outRe[i] = out[0];
+                outIm[i] = out[1];
+            }
+            return;
+        }
+        final double[][] valuesRe = new double[program.length][];
+        final double[][] valuesIm = new double[program.length][];
+        final double[][] buffers = this.buffers(n);
+        final int last = program.length - 1;
+        for (int k = 0; k <= last; k++) {
+            final ExpressionNode node = program[k];
+            if (node.operation == ExpressionNode.Operation.VARIABLE) {
+                if (k == last) {
+                    System.arraycopy(re, 0, outRe, 0, n);
+                    System.arraycopy(im, 0, outIm, 0, n);
+                }
+                valuesRe[k] = re;
+                valuesIm[k] = im;
+                continue;
+            }
+            valuesRe[k] = k == last ? outRe : buffers[2 * k];
+            valuesIm[k] = k == last ? outIm : buffers[2 * k + 1];
+            node.apply(leftOf[k] < 0 ? null : valuesRe[leftOf[k]], leftOf[k] < 0 ? null : valuesIm[leftOf[k]],
+                    rightOf[k] < 0 ? null : valuesRe[rightOf[k]], rightOf[k] < 0 ? null : valuesIm[rightOf[k]],
+                    valuesRe[k], valuesIm[k], n);
+        }
+    }
+
+    /**
+     * buffers.
+     *
+     * @param n number of points of a batch
+     *
+     * @return a pair of buffers of at least n values for every node
+     */
+    private double[][] buffers(final int n) {
+        if (n > MAX_SCRATCH_POINTS) {
+            return new double[2 * program.length][n];
+        }
+        double[][] buffers = scratch.get();
+        if (buffers == null || buffers[0].length < n) {
+            /** Grow by doubling, so that a thread reallocates only a few times */
+            final int size = buffers == null ? n : Math.min(Math.max(n, 2 * buffers[0].length), MAX_SCRATCH_POINTS);
+            buffers = new double[2 * program.length][size];
+            scratch.set(buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * evaluate (non-throwing version).
+     *
+     * Evaluates f at a single point without creating any Complex objects. Unlike
+     * getValue() it never throws: if f is undefined at the point both parts of
+     * the value are NaN, so callers probing many points (ex. the Solver) do not
+     * pay for exceptions.
+     *
+     * @param re  real part of the argument
+     * @param im  imaginary part of the argument
+     * @param out array of length at least 2, receives Re f(z) at index 0 and Im
+     *            f(z) at index 1
+     */
+    public void evaluate(final double re, final double im, final double[] out) {
+        final ComplexKernel generated = this.generated();
+        if (generated != null) {
+            this.evaluate(generated, re, im, out);
+        } else {
+            this.interpret(re, im, out);
+        }
+    }
+
+    /**
+     * evaluate (generated version).
+     *
+     * @param generated the generated kernel
+     * @param re        real part of the argument
+     * @param im        imaginary part of the argument
+     * @param out       receives Re f(z) and Im f(z), NaN where f is undefined
+     */
+    private void evaluate(final ComplexKernel generated, final double re, final double im, final double[] out) {
+        try {
+            generated.evaluate(re, im, out);
+        } catch (CalculatorException e) {
+            /** Undefined at the point - the interpreter tells which parts are NaN */
+            this.interpret(re, im, out);
+        }
+    }
+
+    /**
+     * generated.
+     *
+     * @return the generated kernel if evaluate() is to run it, null to interpret
+     *         the program
+     */
+    private ComplexKernel generated() {
+        if (!useJit) {
+            return null;
+        }
+        final ComplexKernel generated = this.jit();
+        return generated instanceof ExpressionJit.InterpretedKernel ? null : generated;
+    }
+
+    /**
+     * interpret.
+     *
+     * Runs through the program at a single point.
+     *
+     * @param re  real part of the argument
+     * @param im  imaginary part of the argument
+     * @param out receives Re f(z) and Im f(z), NaN where f is undefined
+     */
+    private void interpret(final double re, final double im, final double[] out) {
+        final double[] valuesRe = new double[program.length];
+        final double[] valuesIm = new double[program.length];
+        for (int k = 0; k < program.length; k++) {
+            final ExpressionNode node = program[k];
+            if (node.operation == ExpressionNode.Operation.VARIABLE) {
+                out[0] = re;
+                out[1] = im;
+            } else {
+                final int l = leftOf[k];
+                final int r = rightOf[k];
+                node.apply(l < 0 ? 0 : valuesRe[l], l < 0 ? 0 : valuesIm[l], r < 0 ? 0 : valuesRe[r],
+                        r < 0 ? 0 : valuesIm[r], out);
+            }
+            valuesRe[k] = out[0];
+            valuesIm[k] = out[1];
+        }
+    }
+
+    /**
+     * evaluateWithDerivative.
+     *
+     * Non-throwing counterpart of getValueAndDerivative(). Parts which are
+     * undefined at the point are NaN.
+     *
+     * @param re  real part of the argument
+     * @param im  imaginary part of the argument
+     * @param out array of length at least 4, receives Re f, Im f, Re f' and Im f'
+     *            (in that order)
+     */
+    public void evaluateWithDerivative(final double re, final double im, final double[] out) {
+        final Complex[] values = new Complex[program.length];
+        final Complex[] derivatives = new Complex[program.length];
+        final double[] value = new double[2];
+        for (int k = 0; k < program.length; k++) {
+            final ExpressionNode node = program[k];
+            final int l = leftOf[k];
+            final int r = rightOf[k];
+            final Complex a = l < 0 ? null : values[l];
+            final Complex b = r < 0 ? null : values[r];
+            if (node.operation == ExpressionNode.Operation.VARIABLE) {
+                values[k] = new Complex(re, im);
+            } else {
+                node.apply(a == null ? 0 : a.getRe(), a == null ? 0 : a.getIm(), b == null ? 0 : b.getRe(),
+                        b == null ? 0 : b.getIm(), value);
+                values[k] = new Complex(value[0], value[1]);
+            }
+            derivatives[k] = node.derivative(a, l < 0 ? null : derivatives[l], b, r < 0 ? null : derivatives[r],
+                    values[k]);
+        }
+        final Complex f = values[program.length - 1];
+        final Complex df = derivatives[program.length - 1];
+        out[0] = f.getRe();
+        out[1] = f.getIm();
+        out[2] = df.getRe();
+        out[3] = df.getIm();
+    }
+
+    /**
+     * jit.
+     *
+     * Turns the function into a generated JVM class working on primitive doubles
+     * (see ExpressionJit). Kernels are cached by the normalized expression, so
+     * compiling the same function again is cheap. If the expression cannot be
+     * turned into bytecode the returned kernel evaluates the function the usual
+     * way instead. evaluate() runs the kernel if the function was compiled with
+     * jit on.
+     *
+     * @return the kernel computing exactly the same values as getValue()
+     */
+    public ComplexKernel jit() {
+        if (kernel == null) {
+            kernel = ExpressionJit.kernelFor((optimized ? "optimized:" : "") + variable + ":" + f.toLowerCase(),
+                    this);
+        }
+        return kernel;
+    }
+
+    /**
+     * root.
+     *
+     * @return root of the (optimized) evaluation tree
+     */
+    ExpressionNode root() {
+        return root;
+    }
+
+    /**
+     * compile.
+     *
+     * Mirrors ComplexFunction.eval() branch by branch. Every place the interpreter
+     * computes a value this method builds the node which will compute it later, so
+     * the quirks of the original grammar (operator precedence, implicit
+     * multiplication etc.) are preserved exactly.
+     *
+     * @param f the (sub)function to compile
+     *
+     * @return the root of the evaluation tree
+     *
+     * @throws CalculatorException if the function is not well-formed
+     */
+    private ExpressionNode compile(String f) throws CalculatorException {
+        f = f.trim().toLowerCase();
+        ExpressionNode value = ExpressionNode.constant(0, 0);
+        String number = "";
+        String function = "";
+
+        boolean hasNumber = false;
+        boolean hasFunction = false;
+        boolean isImaginary = false;
+
+        for (int i = 0; i < f.length(); i++) {
+            final char character = f.charAt(i);
+            switch (character) {
+                case '*':
+                case '/':
+                case '+':
+                case '-':
+                case '^': {
+                    final String new_f;
+                    if (character == '+') {
+                        new_f = f.substring(i + 1, f.length());
+                    } else if (character == '-') {
+                        new_f = ComplexFunction.nextMinusFunction(f.substring(i + 1, f.length()));
+                    } else {
+                        new_f = ComplexFunction.nextFunction(f.substring(i + 1, f.length()));
+                    }
+
+                    if (hasNumber && !isImaginary) {
+                        final double numb = Double.valueOf(number);
+                        if (character == '^') {
+                            /** The interpreter evaluates number^f as f^number */
+                            value = ExpressionNode.powReal(compile(new_f), numb);
+                        } else {
+                            value = ExpressionNode.binary(operationOf(character), ExpressionNode.constant(numb, 0),
+                                    compile(new_f));
+                        }
+                        hasNumber = false;
+                        number = "";
+                    } else if (hasNumber && isImaginary) {
+                        final double numb = Double.valueOf(number);
+                        if (character == '^') {
+                            value = ExpressionNode.binary(ExpressionNode.Operation.POW, compile(new_f),
+                                    ExpressionNode.constant(0, numb));
+                        } else {
+                            value = ExpressionNode.binary(operationOf(character), ExpressionNode.constant(0, numb),
+                                    compile(new_f));
+                        }
+                        hasNumber = false;
+                        isImaginary = false;
+                        number = "";
+                    } else if (hasFunction) {
+                        value = ExpressionNode.binary(operationOf(character), compile(function), compile(new_f));
+                        hasFunction = false;
+                        function = "";
+                    } else {
+                        value = ExpressionNode.binary(operationOf(character), value, compile(new_f));
+                    }
+                    i = i + new_f.length();
+                    break;
+                }
+                case '0':
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    hasNumber = true;
+                    number = number + character;
+                    if (i == (f.length() - 1)) {
+                        value = ExpressionNode.constant(Double.valueOf(number), 0);
+                        number = "";
+                        hasNumber = false;
+                    }
+                    break;
+                case '.':
+                    if (i == (f.length() - 1)) {
+                        throw new CalculatorException("The function is not well-formed");
+                    }
+                    if (hasNumber && (number.length() > 0)) {
+                        number = number + character;
+                    }
+                    break;
+                case '(': {
+                    if (i == (f.length() - 1)) {
+                        throw new CalculatorException("The function is not well-formed");
+                    }
+                    final String new_f = f.substring(i + 1, ComplexFunction.nextBracket(f));
+                    if (hasFunction) {
+                        value = ExpressionNode.unary(functionOf(function), compile(new_f));
+                        hasFunction = false;
+                        function = "";
+                    } else {
+                        value = compile(new_f);
+                    }
+                    i = i + new_f.length() + 1;
+                    break;
+                }
+                case ')':
+                    throw new CalculatorException(" '(' is not finished ");
+                case ' ':
+                    break;
+                case 'i':
+                case 'j':
+                    if (!hasFunction) {
+                        if (hasNumber) {
+                            value = ExpressionNode.constant(0, Double.valueOf(number));
+                            /** Only 'i' resets the number, just like in the interpreter */
+                            if (character == 'i') {
+                                number = "";
+                            }
+                        } else {
+                            value = ExpressionNode.constant(0, 1);
+                        }
+                        isImaginary = true;
+                    } else {
+                        function = function + character;
+                        if (i == (f.length() - 1)) {
+                            value = name(function);
+                        }
+                    }
+                    break;
+                default:
+                    if (ComplexFunction.isValidCharacter(character)) {
+                        function = function + character;
+                        hasFunction = true;
+                        if (i == (f.length() - 1)) {
+                            value = name(function);
+                        }
+                    } else {
+                        throw new CalculatorException("Invalid character");
+                    }
+                    break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * name.
+     *
+     * @param function a constant or variable name
+     *
+     * @return the leaf the name stands for
+     *
+     * @throws CalculatorException if the name is unknown
+     */
+    private ExpressionNode name(final String function) throws CalculatorException {
+        if (function.equals(ComplexFunction.E)) {
+            return ExpressionNode.constant(Math.E, 0);
+        } else if (function.equals(ComplexFunction.PI)) {
+            return ExpressionNode.constant(Math.PI, 0);
+        } else if (function.equals(variable)) {
+            return ExpressionNode.variable();
+        } else {
+            throw new CalculatorException("function is not well defined");
+        }
+    }
+
+    /**
+     * operationOf.
+     *
+     * @param character one of * / + - ^
+     *
+     * @return the matching binary operation
+     */
+    private static ExpressionNode.Operation operationOf(final char character) {
+        switch (character) {
+            case '*':
+                return ExpressionNode.Operation.MUL;
+            case '/':
+                return ExpressionNode.Operation.DIV;
+            case '+':
+                return ExpressionNode.Operation.ADD;
+            case '-':
+                return ExpressionNode.Operation.SUB;
+            default:
+                return ExpressionNode.Operation.POW;
+        }
+    }
+
+    /**
+     * functionOf.
+     *
+     * @param function the function name
+     *
+     * @return the matching unary operation
+     *
+     * @throws CalculatorException if the function is unknown
+     */
+    private static ExpressionNode.Operation functionOf(final String function) throws CalculatorException {
+        if (function.equals(ComplexFunction.SIN)) {
+            return ExpressionNode.Operation.SIN;
+        } else if (function.equals(ComplexFunction.COS)) {
+            return ExpressionNode.Operation.COS;
+        } else if (function.equals(ComplexFunction.TAN)) {
+            return ExpressionNode.Operation.TAN;
+        } else if (function.equals(ComplexFunction.SINH)) {
+            return ExpressionNode.Operation.SINH;
+        } else if (function.equals(ComplexFunction.COSH)) {
+            return ExpressionNode.Operation.COSH;
+        } else if (function.equals(ComplexFunction.TANH)) {
+            return ExpressionNode.Operation.TANH;
+        } else if (function.equals(ComplexFunction.ASIN)) {
+            return ExpressionNode.Operation.ASIN;
+        } else if (function.equals(ComplexFunction.ACOS)) {
+            return ExpressionNode.Operation.ACOS;
+        } else if (function.equals(ComplexFunction.ATAN)) {
+            return ExpressionNode.Operation.ATAN;
+        } else if (function.equals(ComplexFunction.LN)) {
+            return ExpressionNode.Operation.LN;
+        } else if (function.equals(ComplexFunction.LOG)) {
+            return ExpressionNode.Operation.LOG;
+        } else if (function.equals(ComplexFunction.SQRT)) {
+            return ExpressionNode.Operation.SQRT;
+        } else if (function.equals(ComplexFunction.CBRT)) {
+            return ExpressionNode.Operation.CBRT;
+        } else {
+            throw new CalculatorException("The function is not well-formed");
+        }
+    }
+}
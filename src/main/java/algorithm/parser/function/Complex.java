@@ -110,28 +110,48 @@ public class Complex implements Comparable<Complex> {
      * @Author Piotr Machura
      */
     public static double phase(Complex z) throws CalculatorException {
-        double y = Math.abs(z.im);
-        double x = Math.abs(z.re);
-        if (z.re > 0 && z.im == 0) {
-            return 0;
-        } else if (z.re > 0 && z.im == 0) {
+        final double phase = phaseOrNaN(z.re, z.im);
+        if (Double.isNaN(phase)) {
+            throw new CalculatorException("Phase undefined for point " + z);
+        }
+        return phase;
+    }
+
+    /**
+     * phaseOrNaN.
+     *
+     * ! Non-throwing version of phase() for loops over many points, where
+     * constructing exceptions is too expensive
+     *
+     * @param re the real part
+     *
+     * @param im the imaginary part
+     *
+     * @return the phase in [0, 2pi] or NaN for 0+0i (and NaN)
+     *
+     * @Author Piotr Machura
+     */
+    public static double phaseOrNaN(final double re, final double im) {
+        double y = Math.abs(im);
+        double x = Math.abs(re);
+        if (re > 0 && im == 0) {
             return 0;
-        } else if (z.re > 0 && z.im > 0) {
+        } else if (re > 0 && im > 0) {
             return Math.atan(y / x);
-        } else if (z.re == 0 && z.im > 0) {
+        } else if (re == 0 && im > 0) {
             return 0.5 * Math.PI;
-        } else if (z.re < 0 && z.im > 0) {
+        } else if (re < 0 && im > 0) {
             return Math.atan(x / y) + Math.PI / 2;
-        } else if (z.re < 0 && z.im == 0) {
+        } else if (re < 0 && im == 0) {
             return Math.PI;
-        } else if (z.re < 0 && z.im < 0) {
+        } else if (re < 0 && im < 0) {
             return Math.atan(y / x) + Math.PI;
-        } else if (z.re == 0 && z.im < 0) {
+        } else if (re == 0 && im < 0) {
             return 1.5 * Math.PI;
-        } else if (z.re > 0 && z.im < 0) {
+        } else if (re > 0 && im < 0) {
             return Math.atan(x / y) + 1.5 * Math.PI;
         } else {
-            throw new CalculatorException("Phase undefined for point " + z);
+            return Double.NaN;
         }
     }
 
@@ -247,6 +267,28 @@ public class Complex implements Comparable<Complex> {
         return new Complex(real, imag);
     }
 
+    /**
+     * divOrNaN.
+     *
+     * ! Non-throwing version of div(): division by 0 gives NaN+NaNi
+     *
+     * @param a the a
+     *
+     * @param b the b
+     *
+     * @return the complex
+     *
+     * @Author Piotr Machura
+     */
+    public static Complex divOrNaN(final Complex a, final Complex b) {
+        if ((b.re == 0) && (b.im == 0)) {
+            return new Complex(Double.NaN, Double.NaN);
+        }
+        final double c = Math.pow(b.re, 2);
+        final double d = Math.pow(b.im, 2);
+        return new Complex(((a.re * b.re) + (a.im * b.im)) / (c + d), ((a.im * b.re) - (a.re * b.im)) / (c + d));
+    }
+
     /**
      * abs.
      *
@@ -578,11 +578,13 @@ public class ComplexFunction {
     /**
      * nextFunction.
      *
+     * ! Made static and package-private to be shared with CompiledComplexFunction
+     *
      * @param f the f
      * @return the string
      * @throws CalculatorException the calculator exception
      */
-    private String nextFunction(String f) throws CalculatorException {
+    static String nextFunction(String f) throws CalculatorException {
         String result = "";
         f = f.trim().toLowerCase();
 
@@ -637,11 +639,13 @@ public class ComplexFunction {
     /**
      * nextMinusFunction.
      *
+     * ! Made static and package-private to be shared with CompiledComplexFunction
+     *
      * @param f the f
      * @return the string
      * @throws CalculatorException the calculator exception
      */
-    private String nextMinusFunction(String f) throws CalculatorException {
+    static String nextMinusFunction(String f) throws CalculatorException {
         String result = "";
         f = f.trim().toLowerCase();
 
@@ -696,10 +700,12 @@ public class ComplexFunction {
     /**
      * isValidCharacter.
      *
+     * ! Made static and package-private to be shared with CompiledComplexFunction
+     *
      * @param character the character
      * @return true, if is valid character
      */
-    private boolean isValidCharacter(final char character) {
+    static boolean isValidCharacter(final char character) {
         boolean result = false;
         switch (character) {
             case 'a':
@@ -792,10 +798,12 @@ public class ComplexFunction {
     /**
      * isValidNumericAndCharacter.
      *
+     * ! Made static and package-private to be shared with CompiledComplexFunction
+     *
      * @param character the character
      * @return true, if is valid numeric and character
      */
-    private boolean isValidNumericAndCharacter(final char character) {
+    static boolean isValidNumericAndCharacter(final char character) {
         boolean result = false;
         switch (character) {
             case 'a':
@@ -918,11 +926,13 @@ public class ComplexFunction {
     /**
      * nextBracket.
      *
+     * ! Made static and package-private to be shared with CompiledComplexFunction
+     *
      * @param f the f
      * @return the int
      * @throws CalculatorException the calculator exception
      */
-    private int nextBracket(final String f) throws CalculatorException {
+    static int nextBracket(final String f) throws CalculatorException {
         int result = 0;
         int count = 0;
         for (int i = 0; i < f.length(); i++) {
@@ -0,0 +1,27 @@
+package algorithm.parser.function;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The interface ComplexKernel.
+ *
+ * A complex function of one variable working purely on primitives, so that no
+ * Complex objects have to be allocated per evaluation. Obtained from
+ * CompiledComplexFunction.jit().
+ *
+ * @Author Piotr Machura
+ */
+public interface ComplexKernel {
+
+    /**
+     * evaluate.
+     *
+     * @param re  real part of the argument
+     * @param im  imaginary part of the argument
+     * @param out array of length at least 2, receives Re f(z) at index 0 and Im
+     *            f(z) at index 1 (its previous contents are overwritten)
+     *
+     * @throws CalculatorException when f is undefined at re + im*i
+     */
+    void evaluate(double re, double im, double[] out) throws CalculatorException;
+}
@@ -0,0 +1,453 @@
+package algorithm.parser.function;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The class ExpressionJit.
+ *
+ * Turns an evaluation tree into a generated JVM class implementing
+ * ComplexKernel. Every node becomes a pair of double local variables, additions
+ * and multiplications are emitted inline and everything else is a static call
+ * into KernelRuntime. The generated method has no branches, which keeps the
+ * class file trivial (no stack map frames) and lets HotSpot inline the whole
+ * expression.
+ *
+ * Generated kernels are cached by the normalized expression, each generated
+ * once even if many threads ask for it at the same time. If a tree cannot be
+ * turned into bytecode the kernel falls back to
+ * CompiledComplexFunction.getValue().
+ *
+ * @Author Piotr Machura
+ */
+final class ExpressionJit {
+
+    /** Maximum amount of generated kernels kept in the cache */
+    static final int CACHE_SIZE = 256;
+
+    /** Java 8 class file version */
+    private static final int CLASS_VERSION = 52;
+
+    /** Operand stack depth sufficient for every emitted sequence */
+    private static final int MAX_STACK = 10;
+
+    /** Slot of the double[] out parameter */
+    private static final int OUT_SLOT = 5;
+
+    private static final String KERNEL_INTERFACE = ComplexKernel.class.getName().replace('.', '/');
+    private static final String RUNTIME = KernelRuntime.class.getName().replace('.', '/');
+    private static final String CLASS_PREFIX = "algorithm/parser/function/jit/Kernel";
+
+    /** Normalized expression -> kernel, least recently used entries are dropped */
+    private static final Map<String, ComplexKernel> cache = Collections
+            .synchronizedMap(new LinkedHashMap<String, ComplexKernel>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ComplexKernel> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private static int classCounter = 0;
+
+    private ExpressionJit() {
+    }
+
+    /**
+     * kernelFor.
+     *
+     * @param key      the normalized expression
+     * @param function the compiled expression
+     *
+     * @return a (possibly cached) kernel evaluating the function
+     */
+    static ComplexKernel kernelFor(final String key, final CompiledComplexFunction function) {
+        /** Generated while holding the lock of the cache, so that no key is generated twice */
+        return cache.computeIfAbsent(key, new Function<String, ComplexKernel>() {
+            @Override
+            public ComplexKernel apply(final String expression) {
+                return generate(function);
+            }
+        });
+    }
+
+    /**
+     * generate.
+     *
+     * @param function the compiled expression
+     *
+     * @return a generated kernel or an interpreting one if generation failed
+     */
+    static ComplexKernel generate(final CompiledComplexFunction function) {
+        try {
+            final String name;
+            synchronized (ExpressionJit.class) {
+                name = CLASS_PREFIX + (classCounter++);
+            }
+            final byte[] bytes = new ClassBuilder(name).build(function.root());
+            final Class<?> c = new KernelClassLoader(ExpressionJit.class.getClassLoader())
+                    .define(name.replace('/', '.'), bytes);
+            return (ComplexKernel) c.getDeclaredConstructor().newInstance();
+        } catch (Exception | LinkageError e) {
+            /** Unsupported construct, method too large etc. - interpret instead */
+            return new InterpretedKernel(function);
+        }
+    }
+
+    /**
+     * The class InterpretedKernel.
+     *
+     * Fallback kernel using CompiledComplexFunction.getValue().
+     */
+    static final class InterpretedKernel implements ComplexKernel {
+        private final CompiledComplexFunction function;
+
+        InterpretedKernel(final CompiledComplexFunction function) {
+            this.function = function;
+        }
+
+        @Override
+        public void evaluate(final double re, final double im, final double[] out) throws CalculatorException {
+            final Complex value = function.getValue(new Complex(re, im));
+            out[0] = value.getRe();
+            out[1] = value.getIm();
+        }
+    }
+
+    /**
+     * The class KernelClassLoader.
+     *
+     * One loader per generated class, so that kernels dropped from the cache can
+     * be garbage collected.
+     */
+    private static final class KernelClassLoader extends ClassLoader {
+        KernelClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(final String name, final byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * The class ClassBuilder.
+     *
+     * Minimal class file writer producing a single kernel class.
+     */
+    private static final class ClassBuilder {
+        private final String name;
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+        private int poolCount = 1;
+
+        private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        private final DataOutputStream code = new DataOutputStream(codeBytes);
+        private final Map<ExpressionNode, Integer> slots = new IdentityHashMap<ExpressionNode, Integer>();
+        private int nextSlot = OUT_SLOT + 1;
+
+        ClassBuilder(final String name) {
+            this.name = name;
+        }
+
+        byte[] build(final ExpressionNode root) throws IOException {
+            final int thisClass = classRef(name);
+            final int superClass = classRef("java/lang/Object");
+            final int kernelInterface = classRef(KERNEL_INTERFACE);
+            final int codeName = utf8("Code");
+            final int initName = utf8("<init>");
+            final int initDesc = utf8("()V");
+            final int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+            final int evaluateName = utf8("evaluate");
+            final int evaluateDesc = utf8("(DD[D)V");
+
+            /** evaluate(re, im, out): compute every node, then store the root in out */
+            final int result = emit(root);
+            code.writeByte(0x19); // aload
+            code.writeByte(OUT_SLOT);
+            code.writeByte(0x03); // iconst_0
+            load(result);
+            code.writeByte(0x52); // dastore
+            code.writeByte(0x19); // aload
+            code.writeByte(OUT_SLOT);
+            code.writeByte(0x04); // iconst_1
+            load(result + 2);
+            code.writeByte(0x52); // dastore
+            code.writeByte(0xb1); // return
+            code.flush();
+            final byte[] evaluateCode = codeBytes.toByteArray();
+            if (evaluateCode.length >= 0xffff || nextSlot >= 0xffff || poolCount >= 0xffff) {
+                throw new IOException("Expression too large for a single method");
+            }
+            pool.flush();
+
+            final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(classBytes);
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(kernelInterface);
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+
+            /** public <init>() { super(); } */
+            final byte[] initCode = { 0x2a, (byte) 0xb7, (byte) (objectInit >> 8), (byte) objectInit, (byte) 0xb1 };
+            writeMethod(out, initName, initDesc, codeName, 1, 1, initCode);
+            writeMethod(out, evaluateName, evaluateDesc, codeName, MAX_STACK, nextSlot, evaluateCode);
+
+            out.writeShort(0); // class attributes
+            out.flush();
+            return classBytes.toByteArray();
+        }
+
+        private void writeMethod(final DataOutputStream out, final int methodName, final int descriptor,
+                final int codeName, final int maxStack, final int maxLocals, final byte[] body) throws IOException {
+            out.writeShort(0x0001); // public
+            out.writeShort(methodName);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + body.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // code attributes
+        }
+
+        /**
+         * emit.
+         *
+         * Emits code computing the node (once, even if it is shared).
+         *
+         * @return the slot holding the real part, the imaginary part is 2 slots
+         *         further
+         */
+        private int emit(final ExpressionNode node) throws IOException {
+            final Integer known = slots.get(node);
+            if (known != null) {
+                return known;
+            }
+            if (node.operation == ExpressionNode.Operation.VARIABLE) {
+                /** re and im parameters sit in slots 1 and 3 */
+                slots.put(node, 1);
+                return 1;
+            }
+            final int l = node.left == null ? -1 : emit(node.left);
+            final int r = node.right == null ? -1 : emit(node.right);
+            final int slot = nextSlot;
+            nextSlot += 4;
+
+            switch (node.operation) {
+                case CONSTANT:
+                    constant(node.re);
+                    store(slot);
+                    constant(node.im);
+                    store(slot + 2);
+                    break;
+                case ADD:
+                case SUB: {
+                    final int op = node.operation == ExpressionNode.Operation.ADD ? 0x63 : 0x67; // dadd, dsub
+                    load(l);
+                    load(r);
+                    code.writeByte(op);
+                    store(slot);
+                    load(l + 2);
+                    load(r + 2);
+                    code.writeByte(op);
+                    store(slot + 2);
+                    break;
+                }
+                case MUL:
+                    /** (a.re * b.re) - (a.im * b.im) */
+                    load(l);
+                    load(r);
+                    code.writeByte(0x6b); // dmul
+                    load(l + 2);
+                    load(r + 2);
+                    code.writeByte(0x6b);
+                    code.writeByte(0x67); // dsub
+                    store(slot);
+                    /** (a.im * b.re) + (a.re * b.im) */
+                    load(l + 2);
+                    load(r);
+                    code.writeByte(0x6b);
+                    load(l);
+                    load(r + 2);
+                    code.writeByte(0x6b);
+                    code.writeByte(0x63); // dadd
+                    store(slot + 2);
+                    break;
+                case DIV:
+                case POW:
+                    load(l);
+                    load(l + 2);
+                    load(r);
+                    load(r + 2);
+                    call(node.operation == ExpressionNode.Operation.DIV ? "div" : "pow", "(DDDD[D)V", slot);
+                    break;
+                case POW_REAL:
+                    load(l);
+                    load(l + 2);
+                    constant(node.re);
+                    call("powReal", "(DDD[D)V", slot);
+                    break;
+                default:
+                    load(l);
+                    load(l + 2);
+                    call(runtimeName(node.operation), "(DD[D)V", slot);
+                    break;
+            }
+            slots.put(node, slot);
+            return slot;
+        }
+
+        /** Calls KernelRuntime.method with out appended, then moves out[0..1] to slot */
+        private void call(final String method, final String descriptor, final int slot) throws IOException {
+            code.writeByte(0x19); // aload
+            code.writeByte(OUT_SLOT);
+            final int ref = methodRef(RUNTIME, method, descriptor);
+            code.writeByte(0xb8); // invokestatic
+            code.writeShort(ref);
+            code.writeByte(0x19);
+            code.writeByte(OUT_SLOT);
+            code.writeByte(0x03); // iconst_0
+            code.writeByte(0x31); // daload
+            store(slot);
+            code.writeByte(0x19);
+            code.writeByte(OUT_SLOT);
+            code.writeByte(0x04); // iconst_1
+            code.writeByte(0x31);
+            store(slot + 2);
+        }
+
+        private String runtimeName(final ExpressionNode.Operation operation) {
+            switch (operation) {
+                case SIN:
+                    return "sin";
+                case COS:
+                    return "cos";
+                case TAN:
+                    return "tan";
+                case SINH:
+                    return "sinh";
+                case COSH:
+                    return "cosh";
+                case TANH:
+                    return "tanh";
+                case ASIN:
+                    return "asin";
+                case ACOS:
+                    return "acos";
+                case ATAN:
+                    return "atan";
+                case LN:
+                    return "ln";
+                case LOG:
+                    return "log";
+                case SQRT:
+                    return "sqrt";
+                case CBRT:
+                    return "cbrt";
+                default:
+                    throw new UnsupportedOperationException(operation.toString());
+            }
+        }
+
+        private void load(final int slot) throws IOException {
+            local(0x18, slot); // dload
+        }
+
+        private void store(final int slot) throws IOException {
+            local(0x39, slot); // dstore
+        }
+
+        private void local(final int opcode, final int slot) throws IOException {
+            if (slot <= 0xff) {
+                code.writeByte(opcode);
+                code.writeByte(slot);
+            } else {
+                code.writeByte(0xc4); // wide
+                code.writeByte(opcode);
+                code.writeShort(slot);
+            }
+        }
+
+        private void constant(final double value) throws IOException {
+            final String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                index = poolCount;
+                pool.writeByte(6); // CONSTANT_Double
+                pool.writeDouble(value);
+                poolCount += 2;
+                poolIndex.put(key, index);
+            }
+            code.writeByte(0x14); // ldc2_w
+            code.writeShort(index);
+        }
+
+        private int utf8(final String value) throws IOException {
+            final String key = "U" + value;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                index = poolCount++;
+                pool.writeByte(1); // CONSTANT_Utf8
+                pool.writeUTF(value);
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int classRef(final String internalName) throws IOException {
+            final String key = "C" + internalName;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                final int nameIndex = utf8(internalName);
+                index = poolCount++;
+                pool.writeByte(7); // CONSTANT_Class
+                pool.writeShort(nameIndex);
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int methodRef(final String owner, final String method, final String descriptor) throws IOException {
+            final String key = "M" + owner + "." + method + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                final int ownerIndex = classRef(owner);
+                final int methodName = utf8(method);
+                final int descriptorIndex = utf8(descriptor);
+                final int nameAndType = poolCount++;
+                pool.writeByte(12); // CONSTANT_NameAndType
+                pool.writeShort(methodName);
+                pool.writeShort(descriptorIndex);
+                index = poolCount++;
+                pool.writeByte(10); // CONSTANT_Methodref
+                pool.writeShort(ownerIndex);
+                pool.writeShort(nameAndType);
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package algorithm.parser.function;
+
+import java.util.Arrays;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The class ExpressionNode.
+ *
+ * A single node of the evaluation tree built by CompiledComplexFunction. Every
+ * operation maps onto exactly the same Complex method the string interpreter
+ * in ComplexFunction uses, so both give identical results.
+ *
+ * @Author Piotr Machura
+ */
+final class ExpressionNode {
+
+    /** Operations a node can perform */
+    enum Operation {
+        CONSTANT, VARIABLE, ADD, SUB, MUL, DIV, POW, POW_REAL, SIN, COS, TAN, SINH, COSH, TANH, ASIN, ACOS, ATAN, LN,
+        LOG, SQRT, CBRT
+    }
+
+    final Operation operation;
+    final ExpressionNode left;
+    final ExpressionNode right;
+
+    /** Value of a CONSTANT node or the exponent of a POW_REAL node */
+    final double re;
+    final double im;
+
+    /**
+     * ExpressionNode constructor.
+     *
+     * @param operation the operation to perform
+     * @param left      the first (or only) argument, null for leaves
+     * @param right     the second argument, null for leaves and functions
+     * @param re        the real part of a constant (exponent for POW_REAL)
+     * @param im        the imaginary part of a constant
+     */
+    private ExpressionNode(final Operation operation, final ExpressionNode left, final ExpressionNode right,
+            final double re, final double im) {
+        this.operation = operation;
+        this.left = left;
+        this.right = right;
+        this.re = re;
+        this.im = im;
+    }
+
+    /**
+     * constant.
+     *
+     * @param re the real part
+     * @param im the imaginary part
+     *
+     * @return a leaf holding re + im*i
+     */
+    static ExpressionNode constant(final double re, final double im) {
+        return new ExpressionNode(Operation.CONSTANT, null, null, re, im);
+    }
+
+    /**
+     * variable.
+     *
+     * @return a leaf evaluating to the function's argument
+     */
+    static ExpressionNode variable() {
+        return new ExpressionNode(Operation.VARIABLE, null, null, 0, 0);
+    }
+
+    /**
+     * binary.
+     *
+     * @param operation one of ADD, SUB, MUL, DIV, POW
+     * @param left      the left operand
+     * @param right     the right operand
+     *
+     * @return the node
+     */
+    static ExpressionNode binary(final Operation operation, final ExpressionNode left, final ExpressionNode right) {
+        return new ExpressionNode(operation, left, right, 0, 0);
+    }
+
+    /**
+     * powReal.
+     *
+     * @param base     the base
+     * @param exponent the real exponent
+     *
+     * @return the node computing Complex.pow(base, exponent)
+     */
+    static ExpressionNode powReal(final ExpressionNode base, final double exponent) {
+        return new ExpressionNode(Operation.POW_REAL, base, null, exponent, 0);
+    }
+
+    /**
+     * unary.
+     *
+     * @param operation one of the elementary functions (SIN ... CBRT)
+     * @param argument  the function argument
+     *
+     * @return the node
+     */
+    static ExpressionNode unary(final Operation operation, final ExpressionNode argument) {
+        return new ExpressionNode(operation, argument, null, 0, 0);
+    }
+
+    /**
+     * isLeaf.
+     *
+     * @return true for CONSTANT and VARIABLE nodes
+     */
+    boolean isLeaf() {
+        return operation == Operation.CONSTANT || operation == Operation.VARIABLE;
+    }
+
+    /**
+     * isEntire.
+     *
+     * @return true if the operation itself has neither poles nor branch cuts
+     *         (its operands are not checked)
+     */
+    boolean isEntire() {
+        switch (operation) {
+            case CONSTANT:
+            case VARIABLE:
+            case ADD:
+            case SUB:
+            case MUL:
+            case SIN:
+            case COS:
+            case SINH:
+            case COSH:
+                return true;
+            case POW:
+                /** c^g = e^(g*ln(c)) and g^n with a whole n */
+                return (left.operation == Operation.CONSTANT && (left.re != 0 || left.im != 0))
+                        || (right.operation == Operation.CONSTANT && right.im == 0 && isWhole(right.re));
+            case POW_REAL:
+                return isWhole(re);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isWhole(final double exponent) {
+        return exponent >= 0 && exponent == Math.rint(exponent);
+    }
+
+    /**
+     * apply.
+     *
+     * Performs the node's operation on already computed operands. Not defined for
+     * VARIABLE nodes, their value is supplied by the caller.
+     *
+     * @param a value of the left operand (null for leaves)
+     * @param b value of the right operand (null for leaves and functions)
+     *
+     * @return value of the node
+     *
+     * @throws CalculatorException when the operation is undefined for a, b
+     */
+    Complex apply(final Complex a, final Complex b) throws CalculatorException {
+        switch (operation) {
+            case CONSTANT:
+                return new Complex(re, im);
+            case ADD:
+                return Complex.add(a, b);
+            case SUB:
+                return Complex.sub(a, b);
+            case MUL:
+                return Complex.mul(a, b);
+            case DIV:
+                return Complex.div(a, b);
+            case POW:
+                return Complex.pow(a, b);
+            case POW_REAL:
+                return Complex.pow(a, re);
+            case SIN:
+                return a.sin();
+            case COS:
+                return a.cos();
+            case TAN:
+                return a.tan();
+            case SINH:
+                return a.sinh();
+            case COSH:
+                return a.cosh();
+            case TANH:
+                return a.tanh();
+            case ASIN:
+                return a.asin();
+            case ACOS:
+                return a.acos();
+            case ATAN:
+                return a.atan();
+            case LN:
+                return a.log();
+            case LOG:
+                return a.log10();
+            case SQRT:
+                return a.sqrt();
+            case CBRT:
+                return Complex.cbrt(a);
+            default:
+                throw new CalculatorException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * derivative.
+     *
+     * Forward-mode differentiation rule of the node: given the operands, their
+     * derivatives and the node's own value returns the derivative of the node.
+     * The rules follow the exact branches the Complex methods compute (ex. the
+     * derivative of asin() uses the same square root asin() itself uses). The
+     * only exception is cbrt, for which Complex.cbrt() is not analytic off the
+     * real axis, its derivative is the one of the principal cube root.
+     *
+     * @param a     value of the left operand (null for leaves)
+     * @param da    derivative of the left operand
+     * @param b     value of the right operand (null for leaves and functions)
+     * @param db    derivative of the right operand
+     * @param value value of the node
+     *
+     * @return derivative of the node (NaN where it is undefined)
+     */
+    Complex derivative(final Complex a, final Complex da, final Complex b, final Complex db, final Complex value) {
+        final Complex zero = new Complex(0, 0);
+        final Complex one = new Complex(1, 0);
+        if (operation == Operation.VARIABLE) {
+            return one;
+        } else if (operation == Operation.CONSTANT || (isZero(da) && (db == null || isZero(db)))) {
+            /** Constant subtree */
+            return zero;
+        }
+        switch (operation) {
+            case ADD:
+                return Complex.add(da, db);
+            case SUB:
+                return Complex.sub(da, db);
+            case MUL:
+                return Complex.add(Complex.mul(da, b), Complex.mul(a, db));
+            case DIV:
+                /** (da - (a/b) db) / b */
+                return Complex.divOrNaN(Complex.sub(da, Complex.mul(value, db)), b);
+            case POW: {
+                /** b a^(b-1) da + a^b ln(a) db */
+                Complex d = zero;
+                if (!isZero(da)) {
+                    d = Complex.mul(Complex.mul(b, Complex.pow(a, Complex.sub(b, one))), da);
+                }
+                if (!isZero(db)) {
+                    d = Complex.add(d, Complex.mul(Complex.mul(value, a.log()), db));
+                }
+                return d;
+            }
+            case POW_REAL:
+                return Complex.mul(Complex.mul(new Complex(re, 0), Complex.pow(a, re - 1)), da);
+            case SIN:
+                return Complex.mul(a.cos(), da);
+            case COS:
+                return Complex.mul(a.sin().negate(), da);
+            case TAN:
+                return Complex.mul(Complex.add(one, Complex.mul(value, value)), da);
+            case SINH:
+                return Complex.mul(a.cosh(), da);
+            case COSH:
+                return Complex.mul(a.sinh(), da);
+            case TANH:
+                return Complex.mul(Complex.sub(one, Complex.mul(value, value)), da);
+            case ASIN:
+                return Complex.divOrNaN(da, Complex.sub(one, Complex.mul(a, a)).sqrt());
+            case ACOS:
+                return Complex.divOrNaN(da, Complex.sub(one, Complex.mul(a, a)).sqrt()).negate();
+            case ATAN:
+                return Complex.divOrNaN(da, Complex.add(one, Complex.mul(a, a)));
+            case LN:
+                return Complex.divOrNaN(da, a);
+            case LOG:
+                return Complex.divOrNaN(da, Complex.mul(a, new Complex(Math.log(10), 0)));
+            case SQRT:
+                return Complex.divOrNaN(da, Complex.mul(new Complex(2, 0), value));
+            case CBRT:
+                return Complex.divOrNaN(da, Complex.mul(new Complex(3, 0), Complex.mul(value, value)));
+            default:
+                return new Complex(Double.NaN, Double.NaN);
+        }
+    }
+
+    private static boolean isZero(final Complex c) {
+        return c.getRe() == 0 && c.getIm() == 0;
+    }
+
+    /**
+     * apply (batch version).
+     *
+     * Performs the node's operation on n already computed operands at once, so the
+     * arithmetic nodes run as plain loops over arrays. Points at which the
+     * operation is undefined receive NaN instead of throwing. Not defined for
+     * VARIABLE nodes.
+     *
+     * @param aRe   real parts of the left operand (null for leaves)
+     * @param aIm   imaginary parts of the left operand (null for leaves)
+     * @param bRe   real parts of the right operand (null for leaves and functions)
+     * @param bIm   imaginary parts of the right operand
+     * @param outRe receives real parts of the values
+     * @param outIm receives imaginary parts of the values
+     * @param n     number of points
+     */
+    void apply(final double[] aRe, final double[] aIm, final double[] bRe, final double[] bIm, final double[] outRe,
+            final double[] outIm, final int n) {
+        switch (operation) {
+            case CONSTANT:
+                Arrays.fill(outRe, 0, n, this.re);
+                Arrays.fill(outIm, 0, n, this.im);
+                break;
+            case ADD:
+                for (int i = 0; i < n; i++) {
+                    outRe[i] = aRe[i] + bRe[i];
+                    outIm[i] = aIm[i] + bIm[i];
+                }
+                break;
+            case SUB:
+                for (int i = 0; i < n; i++) {
+                    outRe[i] = aRe[i] - bRe[i];
+                    outIm[i] = aIm[i] - bIm[i];
+                }
+                break;
+            case MUL:
+                for (int i = 0; i < n; i++) {
+                    final double re = (aRe[i] * bRe[i]) - (aIm[i] * bIm[i]);
+                    final double im = (aIm[i] * bRe[i]) + (aRe[i] * bIm[i]);
+                    outRe[i] = re;
+                    outIm[i] = im;
+                }
+                break;
+            case DIV:
+                for (int i = 0; i < n; i++) {
+                    if (bRe[i] == 0 && bIm[i] == 0) {
+                        outRe[i] = Double.NaN;
+                        outIm[i] = Double.NaN;
+                    } else {
+                        final double c = Math.pow(bRe[i], 2);
+                        final double d = Math.pow(bIm[i], 2);
+                        final double re = ((aRe[i] * bRe[i]) + (aIm[i] * bIm[i])) / (c + d);
+                        final double im = ((aIm[i] * bRe[i]) - (aRe[i] * bIm[i])) / (c + d);
+                        outRe[i] = re;
+                        outIm[i] = im;
+                    }
+                }
+                break;
+            default:
+                /** Transcendental functions - point by point */
+                final double[] value = new double[2];
+                for (int i = 0; i < n; i++) {
+                    apply(aRe[i], aIm[i], bRe == null ? 0 : bRe[i], bIm == null ? 0 : bIm[i], value);
+                    outRe[i] = value[0];
+                    outIm[i] = value[1];
+                }
+                break;
+        }
+    }
+
+    /**
+     * apply (primitive version).
+     *
+     * Performs the node's operation on a single point without creating any
+     * objects. Points at which the operation is undefined receive NaN instead of
+     * throwing. Not defined for VARIABLE nodes.
+     *
+     * @param aRe real part of the left operand
+     * @param aIm imaginary part of the left operand
+     * @param bRe real part of the right operand (ignored unless binary)
+     * @param bIm imaginary part of the right operand (ignored unless binary)
+     * @param out receives the value
+     */
+    void apply(final double aRe, final double aIm, final double bRe, final double bIm, final double[] out) {
+        switch (operation) {
+            case CONSTANT:
+                out[0] = this.re;
+                out[1] = this.im;
+                break;
+            case ADD:
+                out[0] = aRe + bRe;
+                out[1] = aIm + bIm;
+                break;
+            case SUB:
+                out[0] = aRe - bRe;
+                out[1] = aIm - bIm;
+                break;
+            case MUL:
+                out[0] = (aRe * bRe) - (aIm * bIm);
+                out[1] = (aIm * bRe) + (aRe * bIm);
+                break;
+            case DIV:
+                KernelRuntime.divOrNaN(aRe, aIm, bRe, bIm, out);
+                break;
+            case POW:
+                KernelRuntime.pow(aRe, aIm, bRe, bIm, out);
+                break;
+            case POW_REAL:
+                KernelRuntime.powReal(aRe, aIm, this.re, out);
+                break;
+            case SIN:
+                KernelRuntime.sin(aRe, aIm, out);
+                break;
+            case COS:
+                KernelRuntime.cos(aRe, aIm, out);
+                break;
+            case TAN:
+                KernelRuntime.tanOrNaN(aRe, aIm, out);
+                break;
+            case SINH:
+                KernelRuntime.sinh(aRe, aIm, out);
+                break;
+            case COSH:
+                KernelRuntime.cosh(aRe, aIm, out);
+                break;
+            case TANH:
+                KernelRuntime.tanhOrNaN(aRe, aIm, out);
+                break;
+            case ASIN:
+                KernelRuntime.asin(aRe, aIm, out);
+                break;
+            case ACOS:
+                KernelRuntime.acos(aRe, aIm, out);
+                break;
+            case ATAN:
+                KernelRuntime.atanOrNaN(aRe, aIm, out);
+                break;
+            case LN:
+                KernelRuntime.ln(aRe, aIm, out);
+                break;
+            case LOG:
+                KernelRuntime.log(aRe, aIm, out);
+                break;
+            case SQRT:
+                KernelRuntime.sqrt(aRe, aIm, out);
+                break;
+            case CBRT:
+                KernelRuntime.cbrt(aRe, aIm, out);
+                break;
+            default:
+                out[0] = Double.NaN;
+                out[1] = Double.NaN;
+                break;
+        }
+    }
+}
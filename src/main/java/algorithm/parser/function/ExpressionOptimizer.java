@@ -0,0 +1,196 @@
+package algorithm.parser.function;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The class ExpressionOptimizer.
+ *
+ * Rewrites an evaluation tree before it is evaluated:
+ *
+ * 1. Constant subtrees (ex. 2*pi/3) are folded into a single constant. Folding
+ * uses the very same Complex operations, so the result does not change.
+ *
+ * 2. Repeated subexpressions (ex. sin(z) in sin(z)^2+sin(z)) are merged into
+ * one shared node, turning the tree into a DAG which is evaluated once per
+ * shared node.
+ *
+ * 3. Powers with a small positive integer exponent (ex. z^3) are computed by
+ * repeated squaring instead of the generic log/exp path of Complex.pow(). This
+ * is the only rewrite which changes results (only by rounding, and z^n at z=0
+ * becomes 0 instead of NaN).
+ *
+ * @Author Piotr Machura
+ */
+final class ExpressionOptimizer {
+
+    /** Largest exponent rewritten into multiplications */
+    static final int MAX_INTEGER_POWER = 64;
+
+    /** Canonical node for every distinct (operation, operands, constant) */
+    private final Map<Key, ExpressionNode> canonical = new HashMap<Key, ExpressionNode>();
+
+    /** Already optimized nodes of the input */
+    private final Map<ExpressionNode, ExpressionNode> done = new IdentityHashMap<ExpressionNode, ExpressionNode>();
+
+    private ExpressionOptimizer() {
+    }
+
+    /**
+     * optimize.
+     *
+     * @param root root of the tree to optimize
+     *
+     * @return root of the optimized DAG
+     */
+    static ExpressionNode optimize(final ExpressionNode root) {
+        return new ExpressionOptimizer().visit(root);
+    }
+
+    private ExpressionNode visit(final ExpressionNode node) {
+        ExpressionNode result = done.get(node);
+        if (result != null) {
+            return result;
+        }
+        if (node.isLeaf()) {
+            result = intern(node);
+        } else {
+            final ExpressionNode left = visit(node.left);
+            final ExpressionNode right = node.right == null ? null : visit(node.right);
+            result = rewrite(node, left, right);
+        }
+        done.put(node, result);
+        return result;
+    }
+
+    /**
+     * rewrite.
+     *
+     * @param node  the original node
+     * @param left  optimized left operand
+     * @param right optimized right operand (or null)
+     *
+     * @return optimized equivalent of node
+     */
+    private ExpressionNode rewrite(final ExpressionNode node, final ExpressionNode left, final ExpressionNode right) {
+        final ExpressionNode.Operation operation = node.operation;
+
+        /** Constant folding */
+        if (left.operation == ExpressionNode.Operation.CONSTANT
+                && (right == null || right.operation == ExpressionNode.Operation.CONSTANT)) {
+            try {
+                final Complex value = node.apply(new Complex(left.re, left.im),
+                        right == null ? null : new Complex(right.re, right.im));
+                return intern(ExpressionNode.constant(value.getRe(), value.getIm()));
+            } catch (CalculatorException e) {
+                /** Undefined (ex. 1/0) - keep it, so that it fails at evaluation */
+            }
+        }
+
+        /** Integer power strength reduction */
+        if (operation == ExpressionNode.Operation.POW && right.operation == ExpressionNode.Operation.CONSTANT
+                && right.im == 0 && isSmallInteger(right.re)) {
+            return integerPower(left, (int) right.re);
+        } else if (operation == ExpressionNode.Operation.POW_REAL && isSmallInteger(node.re)) {
+            return integerPower(left, (int) node.re);
+        }
+
+        final ExpressionNode rebuilt;
+        if (operation == ExpressionNode.Operation.POW_REAL) {
+            rebuilt = ExpressionNode.powReal(left, node.re);
+        } else if (right == null) {
+            rebuilt = ExpressionNode.unary(operation, left);
+        } else {
+            rebuilt = ExpressionNode.binary(operation, left, right);
+        }
+        return intern(rebuilt);
+    }
+
+    private static boolean isSmallInteger(final double exponent) {
+        return exponent >= 1 && exponent <= MAX_INTEGER_POWER && exponent == Math.rint(exponent);
+    }
+
+    /**
+     * integerPower.
+     *
+     * @param base     the (optimized) base
+     * @param exponent exponent between 1 and MAX_INTEGER_POWER
+     *
+     * @return base^exponent built from multiplications by repeated squaring
+     */
+    private ExpressionNode integerPower(final ExpressionNode base, int exponent) {
+        ExpressionNode result = null;
+        ExpressionNode square = base;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = result == null ? square
+                        : intern(ExpressionNode.binary(ExpressionNode.Operation.MUL, result, square));
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                square = intern(ExpressionNode.binary(ExpressionNode.Operation.MUL, square, square));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * intern.
+     *
+     * @param node a node whose operands are already canonical
+     *
+     * @return the canonical node equal to it
+     */
+    private ExpressionNode intern(final ExpressionNode node) {
+        final Key key = new Key(node);
+        final ExpressionNode known = canonical.get(key);
+        if (known != null) {
+            return known;
+        }
+        canonical.put(key, node);
+        return node;
+    }
+
+    /**
+     * The class Key.
+     *
+     * Structural identity of a node with canonical operands.
+     */
+    private static final class Key {
+        private final ExpressionNode.Operation operation;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+        private final long re;
+        private final long im;
+
+        Key(final ExpressionNode node) {
+            operation = node.operation;
+            left = node.left;
+            right = node.right;
+            re = Double.doubleToLongBits(node.re);
+            im = Double.doubleToLongBits(node.im);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key k = (Key) o;
+            return operation == k.operation && left == k.left && right == k.right && re == k.re && im == k.im;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = operation.hashCode();
+            h = 31 * h + System.identityHashCode(left);
+            h = 31 * h + System.identityHashCode(right);
+            h = 31 * h + (int) (re ^ (re >>> 32));
+            h = 31 * h + (int) (im ^ (im >>> 32));
+            return h;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package algorithm.parser.function;
+
+import algorithm.parser.exception.CalculatorException;
+
+/**
+ * The class KernelRuntime.
+ *
+ * Operations called from classes generated by ExpressionJit. Each method
+ * computes exactly what the corresponding Complex method computes and writes
+ * the result to out[0] (real part) and out[1] (imaginary part).
+ *
+ * It has to be public because generated classes live in their own class
+ * loader, it is not meant to be used directly.
+ *
+ * @Author Piotr Machura
+ */
+public final class KernelRuntime {
+
+    private KernelRuntime() {
+    }
+
+    private static void store(final Complex c, final double[] out) {
+        out[0] = c.getRe();
+        out[1] = c.getIm();
+    }
+
+    public static void div(final double ar, final double ai, final double br, final double bi, final double[] out)
+            throws CalculatorException {
+        if ((br == 0) && (bi == 0)) {
+            throw new CalculatorException("The complex number b is 0");
+        }
+        divOrNaN(ar, ai, br, bi, out);
+    }
+
+    /** Same as div(), but division by 0 gives NaN */
+    static void divOrNaN(final double ar, final double ai, final double br, final double bi, final double[] out) {
+        if ((br == 0) && (bi == 0)) {
+            out[0] = Double.NaN;
+            out[1] = Double.NaN;
+            return;
+        }
+        final double c = Math.pow(br, 2);
+        final double d = Math.pow(bi, 2);
+        final double re = ((ar * br) + (ai * bi)) / (c + d);
+        final double im = ((ai * br) - (ar * bi)) / (c + d);
+        out[0] = re;
+        out[1] = im;
+    }
+
+    public static void pow(final double ar, final double ai, final double br, final double bi, final double[] out) {
+        store(Complex.pow(new Complex(ar, ai), new Complex(br, bi)), out);
+    }
+
+    public static void powReal(final double ar, final double ai, final double exp, final double[] out) {
+        store(new Complex(ar, ai).pow(exp), out);
+    }
+
+    public static void sin(final double re, final double im, final double[] out) {
+        out[0] = Math.sin(re) * Math.cosh(im);
+        out[1] = Math.cos(re) * Math.sinh(im);
+    }
+
+    public static void cos(final double re, final double im, final double[] out) {
+        out[0] = Math.cos(re) * Math.cosh(im);
+        out[1] = -StrictMath.sin(re) * Math.sinh(im);
+    }
+
+    public static void tan(final double re, final double im, final double[] out) throws CalculatorException {
+        store(new Complex(re, im).tan(), out);
+    }
+
+    /** Same as tan(), but gives NaN at the poles */
+    static void tanOrNaN(final double re, final double im, final double[] out) {
+        sin(re, im, out);
+        final double sinRe = out[0];
+        final double sinIm = out[1];
+        cos(re, im, out);
+        divOrNaN(sinRe, sinIm, out[0], out[1], out);
+    }
+
+    public static void sinh(final double re, final double im, final double[] out) {
+        out[0] = Math.sinh(re) * Math.cos(im);
+        out[1] = Math.cosh(re) * Math.sin(im);
+    }
+
+    public static void cosh(final double re, final double im, final double[] out) {
+        out[0] = Math.cosh(re) * Math.cos(im);
+        out[1] = Math.sinh(re) * Math.sin(im);
+    }
+
+    public static void tanh(final double re, final double im, final double[] out) throws CalculatorException {
+        store(new Complex(re, im).tanh(), out);
+    }
+
+    /** Same as tanh(), but gives NaN at the poles */
+    static void tanhOrNaN(final double re, final double im, final double[] out) {
+        sinh(re, im, out);
+        final double sinhRe = out[0];
+        final double sinhIm = out[1];
+        cosh(re, im, out);
+        divOrNaN(sinhRe, sinhIm, out[0], out[1], out);
+    }
+
+    public static void asin(final double re, final double im, final double[] out) {
+        store(new Complex(re, im).asin(), out);
+    }
+
+    public static void acos(final double re, final double im, final double[] out) {
+        store(new Complex(re, im).acos(), out);
+    }
+
+    public static void atan(final double re, final double im, final double[] out) throws CalculatorException {
+        store(new Complex(re, im).atan(), out);
+    }
+
+    /** Same as atan(), but gives NaN at -i */
+    static void atanOrNaN(final double re, final double im, final double[] out) {
+        /** atan(z) = -i/2 ln((z-i)/(-z-i)), see Complex.atan() */
+        final Complex q = Complex.divOrNaN(new Complex(re, im - 1.0), new Complex(-re, -im - 1.0));
+        final Complex c = Complex.mul(new Complex(0.0, -1.0), q.log());
+        out[0] = c.getRe() / 2.0;
+        out[1] = c.getIm() / 2.0;
+    }
+
+    public static void ln(final double re, final double im, final double[] out) {
+        store(new Complex(re, im).log(), out);
+    }
+
+    public static void log(final double re, final double im, final double[] out) {
+        store(new Complex(re, im).log10(), out);
+    }
+
+    public static void sqrt(final double re, final double im, final double[] out) {
+        store(new Complex(re, im).sqrt(), out);
+    }
+
+    public static void cbrt(final double re, final double im, final double[] out) {
+        store(Complex.cbrt(new Complex(re, im)), out);
+    }
+}
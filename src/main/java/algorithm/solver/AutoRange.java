@@ -0,0 +1,237 @@
+package algorithm.solver;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import algorithm.parser.function.Complex;
+import algorithm.parser.function.CompiledComplexFunction;
+
+/**
+ * The class AutoRange.
+ *
+ * Search for the range of a solve which is not given one: the smallest
+ * square centered at the origin around which f winds (see
+ * Solver.solve(CompiledComplexFunction, SolverAccuracy, SolveOptions)).
+ *
+ * @Author Piotr Machura
+ */
+final class AutoRange {
+
+    private AutoRange() {
+    }
+
+    /**
+     * start.
+     *
+     * The range of a polynomial is taken from Fujiwara's bound on the moduli of
+     * its roots, whatever AUTO_RANGE_MAX is. For other functions the range is
+     * doubled, starting with AUTO_RANGE_START, until the winding number around the
+     * square of that range is not 0 (or the range exceeds AUTO_RANGE_MAX). It is
+     * then narrowed down by bisection to within AUTO_RANGE_INCREMENT of the
+     * smallest such range. All the squares probed share a single sample cache,
+     * made for the biggest doubled range. The doubled ranges and the ones of the
+     * bisection (as long as they are integers) are that range times a / 2^m, so
+     * their samples lie on its grid (see SampleCache.frame()) and a sample
+     * shared by two probes, or by a probe and the solve, is evaluated once. The
+     * square finally picked keeps the samples, so that the solve does not
+     * evaluate them again.
+     *
+     * With a pool all the doubled ranges are probed at once, and so are as many
+     * ranges of every bisection step as the pool has workers (splitting the
+     * interval into the biggest power of 2 of parts which is not more than their
+     * number plus one, instead of two).
+     *
+     * @param f_z           the compiled function to solve
+     * @param accuracyLevel the desired accuracyLevel
+     * @param config        the values to calibrate the solver with
+     * @param pool          the pool to probe ranges on (null to probe them one by
+     *                      one on the calling thread)
+     *
+     * @return the starting square of the solve or null if no range was found
+     */
+    static Solver start(final CompiledComplexFunction f_z, final SolverAccuracy accuracyLevel,
+            final SolverConfig config, final ForkJoinPool pool) {
+        final Complex[] coefficients = f_z.polynomialCoefficients();
+        if (coefficients != null) {
+            if (coefficients.length == 1) {
+                /** A constant has no roots (or nothing but roots) */
+                return null;
+            }
+            final double bound = fujiwaraBound(coefficients);
+            if (bound < SolverDefaults.AUTO_RANGE_POLYNOMIAL_MAX) {
+                /** All roots lie strictly inside the square */
+                return Solver.startSquare((int) Math.floor(bound) + 1, accuracyLevel, config, null);
+            }
+        }
+
+        /** Gallop: find a range with a root and the largest one below it without */
+        int count = 1;
+        for (long range = config.getAutoRangeStart(); range <= config.getAutoRangeMax(); range *= 2) {
+            count++;
+        }
+        int[] ranges = new int[count];
+        ranges[0] = config.getAutoRangeStart();
+        for (int i = 1; i < count; i++) {
+            ranges[i] = (int) Math.min(2L * ranges[i - 1], Integer.MAX_VALUE);
+        }
+        final SampleCache grid = Solver.startSquare(ranges[count - 1], accuracyLevel, config, null).samples;
+        Solver start = firstValid(f_z, ranges, accuracyLevel, config, pool, grid);
+        if (start == null) {
+            return null;
+        }
+        int range = rangeOf(start);
+        int low = SolverDefaults.AUTO_RANGE_FAILED;
+        for (int r : ranges) {
+            if (r < range) {
+                low = r;
+            }
+        }
+
+        /** Bisect between them */
+        if (low != SolverDefaults.AUTO_RANGE_FAILED) {
+            final int parts = pool == null ? 1 : Math.max(1, pool.getParallelism());
+            while (range - low > config.getAutoRangeIncrement()) {
+                /** Split into a power of 2 of parts, fewer if that keeps the ranges integers */
+                int pieces = Integer.highestOneBit(Math.min(parts + 1, range - low));
+                while (pieces > 2 && (range - low) % pieces != 0) {
+                    pieces /= 2;
+                }
+                ranges = new int[pieces - 1];
+                for (int i = 0; i < ranges.length; i++) {
+                    ranges[i] = (int) (low + (long) (range - low) * (i + 1) / pieces);
+                }
+                final Solver found = firstValid(f_z, ranges, accuracyLevel, config, pool, grid);
+                final int upper = found == null ? range : rangeOf(found);
+                /** The largest range probed below the one found had no root */
+                for (int r : ranges) {
+                    if (r < upper) {
+                        low = r;
+                    }
+                }
+                if (found != null) {
+                    start = found;
+                    range = upper;
+                }
+            }
+        }
+        return start;
+    }
+
+    /**
+     * firstValid.
+     *
+     * Probes the starting squares of ranges (see isValid()) on the pool all at
+     * once. As soon as the smallest range with a root is known, the probes of
+     * the bigger ones are stopped: they share a tracker which is then cancelled,
+     * so the ones which have not started yet do not, and the ones already
+     * walking their contours stop (see ContourBatches.walk()).
+     *
+     * @param f_z           the compiled function
+     * @param ranges        the ranges in ascending order
+     * @param accuracyLevel the desired accuracyLevel
+     * @param config        the values to calibrate the solver with
+     * @param pool          the pool to probe on (null to probe one by one on the
+     *                      calling thread)
+     * @param grid          the sample cache shared by the probes
+     *
+     * @return the starting square of the smallest range with a root, null if there
+     *         is none
+     */
+    private static Solver firstValid(final CompiledComplexFunction f_z, final int[] ranges,
+            final SolverAccuracy accuracyLevel, final SolverConfig config, final ForkJoinPool pool,
+            final SampleCache grid) {
+        if (pool == null || ranges.length == 1) {
+            for (int range : ranges) {
+                final Solver square = Solver.startSquare(range, accuracyLevel, config, grid);
+                if (isValid(square, f_z)) {
+                    return square;
+                }
+            }
+            return null;
+        }
+        /** The probes are not limited by the budget of the solve, only stopped */
+        final BudgetTracker probing = new BudgetTracker(SolveBudget.UNLIMITED);
+        final ArrayList<ForkJoinTask<Solver>> probes = new ArrayList<ForkJoinTask<Solver>>();
+        for (final int range : ranges) {
+            probes.add(pool.submit(new Callable<Solver>() {
+                @Override
+                public Solver call() {
+                    if (probing.isExhausted()) {
+                        return null;
+                    }
+                    final Solver square = Solver.startSquare(range, accuracyLevel, config, grid);
+                    square.budget = probing;
+                    return isValid(square, f_z) ? square : null;
+                }
+            }));
+        }
+        try {
+            for (ForkJoinTask<Solver> probe : probes) {
+                final Solver square = probe.get();
+                if (square != null) {
+                    return square;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            probing.cancel();
+        }
+    }
+
+    /**
+     * rangeOf.
+     *
+     * @param start a starting square
+     *
+     * @return its range (half of its sidelength)
+     */
+    private static int rangeOf(final Solver start) {
+        return (int) start.B.getRe();
+    }
+
+    /**
+     * isValid.
+     *
+     * @param square a starting square, which keeps its winding number
+     * @param f_z    the compiled function
+     *
+     * @return true if the square's winding number is not 0, see
+     *         Solver.checkWindingNumber()
+     */
+    private static boolean isValid(final Solver square, final CompiledComplexFunction f_z) {
+        square.winding = square.windingNumber(f_z);
+        return Math.abs(square.winding) > square.config.getMinLegalWindingNumberRatio();
+    }
+
+    /**
+     * fujiwaraBound.
+     *
+     * Fujiwara's bound: every root of a_0 + a_1 z + ... + a_n z^n has a modulus of
+     * at most 2 max(|a_(n-1)/a_n|, |a_(n-2)/a_n|^(1/2), ..., |a_0/(2a_n)|^(1/n)).
+     *
+     * @param coefficients the coefficients a_0, ..., a_n (n at least 1)
+     *
+     * @return the bound (infinite or NaN if it cannot be computed)
+     */
+    private static double fujiwaraBound(final Complex[] coefficients) {
+        final int n = coefficients.length - 1;
+        final double leading = Complex.abs(coefficients[n]);
+        double bound = 0;
+        for (int k = 1; k <= n; k++) {
+            double ratio = Complex.abs(coefficients[n - k]) / leading;
+            if (k == n) {
+                ratio /= 2;
+            }
+            bound = Math.max(bound, Math.pow(ratio, 1d / k));
+        }
+        return 2 * bound;
+    }
+}
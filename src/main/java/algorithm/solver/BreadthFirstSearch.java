@@ -0,0 +1,221 @@
+package algorithm.solver;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import algorithm.parser.function.CompiledComplexFunction;
+
+/**
+ * The class BreadthFirstSearch.
+ *
+ * Search of a solve in breadth-first order (see SearchOrder): the squares are
+ * examined a level at a time, so that the contours of a whole level (or of a
+ * chunk of it, with a pool) are sampled in a single batch (see
+ * ContourBatches).
+ *
+ * @Author Piotr Machura
+ */
+final class BreadthFirstSearch {
+
+    private BreadthFirstSearch() {
+    }
+
+    /**
+     * solve.
+     *
+     * Examines the squares level by level. Winding numbers of all squares of a
+     * level are found together: their contour samples are evaluated in a single
+     * batch (one per chunk of the level if there is a pool to run the chunks
+     * on), after which the viable squares are examined and their children make
+     * up the next level. Bytes of the sample buffers of every level are counted
+     * by the tracker.
+     *
+     * @param squares   the squares of the first level
+     * @param f_z       the function to solve for
+     * @param solutions the collection to put solutions in
+     * @param pool      the pool to run on (null to run on the calling thread)
+     * @param tracker   the budget of the solve
+     */
+    static void solve(final Solver[] squares, final CompiledComplexFunction f_z,
+            final Collection<Root> solutions, final ForkJoinPool pool, final BudgetTracker tracker) {
+        Solver[] level = squares;
+        while (level.length > 0) {
+            if (tracker.isExhausted()) {
+                /** Record the rest of the level as unresolved */
+                for (Solver square : level) {
+                    square.withinBudget();
+                }
+                return;
+            }
+            final Solver[][] children = new Solver[level.length][];
+            if (pool == null) {
+                examineLevel(f_z, level, 0, level.length, solutions, children);
+            } else {
+                final int chunks = 4 * pool.getParallelism();
+                final int chunk = Math.max(SolverDefaults.MIN_LEVEL_CHUNK, (level.length + chunks - 1) / chunks);
+                Solver.invoke(pool, new LevelTask(f_z, level, 0, level.length, solutions, children, chunk), tracker);
+            }
+            int size = 0;
+            for (Solver[] viable : children) {
+                /** Chunks left unfinished by an interrupted wait have no children */
+                size += viable == null ? 0 : viable.length;
+            }
+            final Solver[] next = new Solver[size];
+            size = 0;
+            for (Solver[] viable : children) {
+                if (viable != null) {
+                    System.arraycopy(viable, 0, next, size, viable.length);
+                    size += viable.length;
+                }
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * examineLevel.
+     *
+     * Finds the winding numbers of a chunk of a breadth-first level and examines
+     * its viable squares. The winding number of a last child whose siblings come
+     * right before it in the chunk is derived from theirs once they are known (see
+     * Solver.viableChildren()), it is computed only if one of theirs is not
+     * integral.
+     *
+     * @param f_z       the function to solve for
+     * @param level     the squares of the level
+     * @param from      index of the first square of the chunk
+     * @param to        index after the last square of the chunk
+     * @param solutions the collection to put solutions in
+     * @param children  receives the children of every square of the chunk
+     */
+    private static void examineLevel(final CompiledComplexFunction f_z, final Solver[] level, final int from,
+            final int to, final Collection<Root> solutions, final Solver[][] children) {
+        final Solver[] pending = new Solver[to - from];
+        final Contour[] contours = new Contour[to - from];
+        final int[] lastChildren = new int[to - from];
+        int count = 0;
+        int derived = 0;
+        for (int i = from; i < to; i++) {
+            if (!Double.isNaN(level[i].winding)) {
+                continue;
+            }
+            if (!Double.isNaN(level[i].parentWinding) && i - from >= 3 && areSiblings(level, i)) {
+                lastChildren[derived++] = i;
+            } else {
+                pending[count] = level[i];
+                contours[count++] = level[i].contour();
+            }
+        }
+        if (count > 0) {
+            final long bytes = ContourBatches.windingNumbers(f_z, pending, contours, count);
+            level[from].budget.countMemory(level[from].level, bytes);
+        }
+        count = 0;
+        for (int d = 0; d < derived; d++) {
+            if (!deriveWinding(level, lastChildren[d], f_z.isEntire())) {
+                pending[count] = level[lastChildren[d]];
+                contours[count++] = level[lastChildren[d]].contour();
+            }
+        }
+        if (count > 0) {
+            final long bytes = ContourBatches.windingNumbers(f_z, pending, contours, count);
+            level[from].budget.countMemory(level[from].level, bytes);
+        }
+        for (int i = from; i < to; i++) {
+            final Solver square = level[i];
+            if ((Math.abs(square.winding) > square.config.getMinLegalWindingNumberRatio()
+                    || square.isStopped(square.winding)) && square.withinBudget()) {
+                children[i] = square.examine(f_z, solutions);
+            } else {
+                children[i] = Solver.NO_CHILDREN;
+            }
+        }
+    }
+
+    /**
+     * areSiblings.
+     *
+     * @param level the squares of a breadth-first level
+     * @param i     index of a square of the level, at least 3
+     *
+     * @return true if the three squares right before the i-th one are its
+     *         siblings
+     */
+    private static boolean areSiblings(final Solver[] level, final int i) {
+        for (int k = i - 3; k < i; k++) {
+            if (level[k].level != level[i].level || level[k].x >>> 1 != level[i].x >>> 1
+                    || level[k].y >>> 1 != level[i].y >>> 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * deriveWinding.
+     *
+     * @param level the squares of a breadth-first level
+     * @param i      index of a last child, right after its siblings
+     * @param entire true if the function has no poles
+     *
+     * @return true if the winding numbers of its siblings are integral and leave
+     *         no pole for an entire function, in which case the child's is set to
+     *         its parent's minus theirs
+     */
+    private static boolean deriveWinding(final Solver[] level, final int i, final boolean entire) {
+        long count = Math.round(level[i].parentWinding);
+        for (int k = i - 3; k < i; k++) {
+            if (!level[k].isIntegral(level[k].winding)) {
+                return false;
+            }
+            count -= Math.round(level[k].winding);
+        }
+        if (entire && count < 0) {
+            return false;
+        }
+        level[i].winding = count;
+        return true;
+    }
+
+    /**
+     * The class LevelTask.
+     *
+     * Examines a chunk of a breadth-first level as a fork/join task, splitting it
+     * in halves until it is no bigger than the given chunk size.
+     */
+    private static final class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledComplexFunction f_z;
+        private final Solver[] level;
+        private final int from;
+        private final int to;
+        private final Collection<Root> solutions;
+        private final Solver[][] children;
+        private final int chunk;
+
+        LevelTask(final CompiledComplexFunction f_z, final Solver[] level, final int from, final int to,
+                final Collection<Root> solutions, final Solver[][] children, final int chunk) {
+            this.f_z = f_z;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.solutions = solutions;
+            this.children = children;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > chunk) {
+                /** Siblings stay in the same chunk (see examineLevel()) */
+                final int middle = from + (((to - from) >>> 1) & ~3);
+                invokeAll(new LevelTask(f_z, level, from, middle, solutions, children, chunk),
+                        new LevelTask(f_z, level, middle, to, solutions, children, chunk));
+            } else {
+                examineLevel(f_z, level, from, to, solutions, children);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package algorithm.solver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class BudgetTracker.
+ *
+ * Work done by a single solve against its SolveBudget. Shared by all squares of
+ * the solve (and all threads working on them), it also collects the squares
+ * which were left unexamined.
+ *
+ * @Author Piotr Machura
+ */
+final class BudgetTracker {
+
+    private final long deadline;
+    private final long maxEvaluations;
+    private final int maxDepth;
+
+    private final AtomicLong evaluations = new AtomicLong();
+    /** Set when the time or evaluations ran out, or the solve was cancelled */
+    private final AtomicBoolean exhausted = new AtomicBoolean(false);
+    private final Collection<Solver> unresolved = new ConcurrentLinkedQueue<Solver>();
+    /** Bytes of the sample buffers used by each level of a breadth-first search */
+    private long[] levelMemory = new long[0];
+
+    /**
+     * BudgetTracker constructor.
+     *
+     * @param budget the budget, its time starts running now
+     */
+    BudgetTracker(final SolveBudget budget) {
+        final long timeout = budget.getTimeoutMillis();
+        final long now = System.nanoTime();
+        /** Saturate instead of overflowing for (nearly) unlimited timeouts */
+        deadline = timeout >= (Long.MAX_VALUE - now) / 1000000 ? Long.MAX_VALUE : now + timeout * 1000000;
+        maxEvaluations = budget.getMaxEvaluations();
+        maxDepth = budget.getMaxDepth();
+    }
+
+    /**
+     * count.
+     *
+     * @param n number of evaluations of f just done
+     */
+    void count(final int n) {
+        evaluations.addAndGet(n);
+    }
+
+    /**
+     * allows.
+     *
+     * @param square a square about to be examined
+     *
+     * @return true if it may be examined, otherwise it is recorded as unresolved
+     */
+    boolean allows(final Solver square) {
+        if (isExhausted() || square.level > maxDepth) {
+            unresolved.add(square);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * isExhausted.
+     *
+     * @return true if the time or evaluations ran out (or cancel() was called)
+     */
+    boolean isExhausted() {
+        if (exhausted.get()) {
+            return true;
+        }
+        if (evaluations.get() > maxEvaluations
+                || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0)) {
+            exhausted.set(true);
+        }
+        return exhausted.get();
+    }
+
+    /**
+     * cancel.
+     *
+     * Stops the solve as if the budget ran out.
+     */
+    void cancel() {
+        exhausted.set(true);
+    }
+
+    /**
+     * isPartial.
+     *
+     * @return true if some squares were left unexamined
+     */
+    boolean isPartial() {
+        return exhausted.get() || !unresolved.isEmpty();
+    }
+
+    /**
+     * getEvaluations.
+     *
+     * @return number of evaluations of f done so far
+     */
+    long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * countMemory.
+     *
+     * @param level level of the squares whose samples were buffered
+     * @param bytes size of the buffers
+     */
+    synchronized void countMemory(final int level, final long bytes) {
+        if (level >= levelMemory.length) {
+            levelMemory = Arrays.copyOf(levelMemory, level + 1);
+        }
+        levelMemory[level] += bytes;
+    }
+
+    /**
+     * getLevelMemory.
+     *
+     * @return bytes of the sample buffers used by each level (indexed by level)
+     */
+    synchronized long[] getLevelMemory() {
+        return levelMemory.clone();
+    }
+
+    /**
+     * getUnresolved.
+     *
+     * @return the squares left unexamined
+     */
+    Collection<Solver> getUnresolved() {
+        return unresolved;
+    }
+}
@@ -0,0 +1,122 @@
+package algorithm.solver;
+
+/**
+ * The class Contour.
+ *
+ * Sample points of a square's boundary: their distance from A along the path
+ * (in the smallest steps, n per side), grid coordinates relative to A, real
+ * and imaginary parts and values of f, together with the index of the last
+ * sample of each side. An edge is a contour which is a single straight side,
+ * going right (or up) from its first point.
+ *
+ * @Author Piotr Machura
+ */
+final class Contour {
+
+    /** Unsampled samples of an evaluated contour */
+    static final int[] NOTHING_UNSAMPLED = new int[0];
+
+    final int n;
+    final boolean edge;
+    final long edgeX;
+    final long edgeY;
+    final boolean vertical;
+    final long[] t;
+    final long[] gx;
+    final long[] gy;
+    final double[] re;
+    final double[] im;
+    final double[] valueRe;
+    final double[] valueIm;
+    final int size;
+    final int[] sideEnd = new int[4];
+    /** Indices of the samples at which f was not evaluated yet */
+    int[] unsampled = NOTHING_UNSAMPLED;
+
+    Contour(final int n, final long[] t, final int size) {
+        this(n, t, size, false, 0, 0, false);
+    }
+
+    /** Edge from (edgeX, edgeY) (grid coordinates relative to A) */
+    Contour(final int n, final long[] t, final int size, final long edgeX, final long edgeY,
+            final boolean vertical) {
+        this(n, t, size, true, edgeX, edgeY, vertical);
+    }
+
+    private Contour(final int n, final long[] t, final int size, final boolean edge, final long edgeX,
+            final long edgeY, final boolean vertical) {
+        this.n = n;
+        this.edge = edge;
+        this.edgeX = edgeX;
+        this.edgeY = edgeY;
+        this.vertical = vertical;
+        this.t = t;
+        this.size = size;
+        gx = new long[size];
+        gy = new long[size];
+        re = new double[size];
+        im = new double[size];
+        valueRe = new double[size];
+        valueIm = new double[size];
+        for (int k = 0; k < size; k++) {
+            final long s = t[k];
+            if (edge) {
+                gx[k] = vertical ? edgeX : edgeX + s;
+                gy[k] = vertical ? edgeY + s : edgeY;
+            } else if (s <= n) {
+                /** Path A->B (going right) */
+                gx[k] = s;
+                gy[k] = 0;
+            } else if (s <= 2 * n) {
+                /** Path B->C (going up) */
+                gx[k] = n;
+                gy[k] = s - n;
+            } else if (s <= 3 * n) {
+                /** Path C->D (going left) */
+                gx[k] = 3 * n - s;
+                gy[k] = n;
+            } else {
+                /** Path D->A (going down) */
+                gx[k] = 0;
+                gy[k] = 4 * n - s;
+            }
+            if (s % n == 0 && s > 0) {
+                sideEnd[(int) (s / n) - 1] = k;
+            }
+        }
+    }
+
+    /**
+     * resampled.
+     *
+     * @return a contour of the same path with other samples
+     */
+    Contour resampled(final long[] t, final int size) {
+        return new Contour(n, t, size, edge, edgeX, edgeY, vertical);
+    }
+
+    /**
+     * bytes.
+     *
+     * @return size of the contour's buffers
+     */
+    long bytes() {
+        /** Seven arrays of 8 byte values, plus the unsampled indices */
+        return 56L * size + 4L * unsampled.length;
+    }
+
+    /**
+     * allOf.
+     *
+     * @param size number of samples
+     *
+     * @return indices of all samples of a contour
+     */
+    static int[] allOf(final int size) {
+        final int[] all = new int[size];
+        for (int k = 0; k < size; k++) {
+            all[k] = k;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,284 @@
+package algorithm.solver;
+
+import algorithm.parser.function.CompiledComplexFunction;
+
+/**
+ * The class ContourBatches.
+ *
+ * Samples the contours of many squares of the same level (and the same solve)
+ * together, so that f is evaluated at all of them in a single batch: every
+ * sample at once with fixed stepping, the next sample of every walk at once
+ * with adaptive stepping. The winding numbers of the squares of a whole grid
+ * are found by sampling the lines of the grid instead of their contours.
+ *
+ * @Author Piotr Machura
+ */
+final class ContourBatches {
+
+    private ContourBatches() {
+    }
+
+    /**
+     * windingNumbers.
+     *
+     * Sets the winding numbers of many squares of the same level, evaluating their
+     * contours together (see sampleAdaptively()).
+     *
+     * @param f_z      the compiled function
+     * @param squares  the squares
+     * @param contours their contours
+     * @param count    number of squares
+     *
+     * @return bytes of the contours and batch buffers used
+     */
+    static long windingNumbers(final CompiledComplexFunction f_z, final Solver[] squares,
+            final Contour[] contours, final int count) {
+        final long bytes = sampleAdaptively(f_z, squares, contours, count);
+        for (int s = 0; s < count; s++) {
+            squares[s].winding = squares[s].windingNumberOf(f_z, contours[s]);
+        }
+        return bytes;
+    }
+
+    /**
+     * sweepWindingNumbers.
+     *
+     * Finds the winding numbers of the squares of a grid by walking every grid
+     * line once instead of walking around every square. The turn of f along each
+     * edge of the grid is found once and the winding number of a square is the
+     * sum of the turns along its edges (the top and left ones taken backwards).
+     * Edges are sampled and refined exactly like the sides of a square's contour,
+     * so a square gets the winding number it would get on its own. Squares with
+     * an edge on which f has no phase at a sample (a zero or a pole) are left
+     * with an unknown winding number.
+     *
+     * @param f_z  the compiled function
+     * @param grid the squares of the grid, row by row from the bottom left one
+     * @param side number of squares per side of the grid
+     *
+     * @return bytes of the edges and batch buffers used
+     */
+    static long sweepWindingNumbers(final CompiledComplexFunction f_z, final Solver[] grid,
+            final int side) {
+        final SolverConfig config = grid[0].config;
+        final int n = config.getStepsPerSidelength();
+        /** An adaptive walk starts from the first sample only (see walk()) */
+        final int steps = config.isAdaptiveStepping() ? 0 : n;
+        final long[] t = new long[steps + 1];
+        for (int k = 0; k <= steps; k++) {
+            t[k] = k;
+        }
+        final int[] all = Contour.allOf(t.length);
+
+        /** Horizontal edges line by line from the bottom, then vertical ones from the left */
+        final int lines = side + 1;
+        final int vertical = side * lines;
+        final Solver[] owners = new Solver[2 * vertical];
+        final Contour[] edges = new Contour[2 * vertical];
+        for (int line = 0; line < lines; line++) {
+            /** Edges of the last lines lie on the top (right) sides of the last squares */
+            final int square = Math.min(line, side - 1);
+            final long offset = line == side ? n : 0;
+            for (int i = 0; i < side; i++) {
+                owners[line * side + i] = grid[square * side + i];
+                edges[line * side + i] = new Contour(n, t, t.length, 0, offset, false);
+                owners[vertical + line * side + i] = grid[i * side + square];
+                edges[vertical + line * side + i] = new Contour(n, t, t.length, offset, 0, true);
+            }
+        }
+        for (Contour edge : edges) {
+            edge.unsampled = all;
+        }
+        final long bytes = sampleAdaptively(f_z, owners, edges, edges.length);
+
+        final double[] turn = new double[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            turn[e] = owners[e].turnAlong(f_z, edges[e]);
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                /** A NaN turn leaves the winding number unknown */
+                grid[row * side + column].winding = turn[row * side + column]
+                        + turn[vertical + (column + 1) * side + row] - turn[(row + 1) * side + column]
+                        - turn[vertical + column * side + row];
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * sampleAdaptively.
+     *
+     * Evaluates the contours of many squares of the same level in a single batch,
+     * or walks them all together with adaptive steps (see walk()).
+     *
+     * @param f_z      the compiled function
+     * @param squares  the squares
+     * @param contours their contours (replaced by the walked ones)
+     * @param count    number of squares
+     *
+     * @return bytes of the contours and batch buffers used
+     */
+    static long sampleAdaptively(final CompiledComplexFunction f_z, final Solver[] squares,
+            final Contour[] contours, final int count) {
+        if (squares[0].config.isAdaptiveStepping()) {
+            return walk(f_z, squares, contours, count);
+        }
+        long bytes = 0;
+        for (int s = 0; s < count; s++) {
+            bytes += contours[s].bytes();
+        }
+        return bytes + sample(f_z, squares, contours, count);
+    }
+
+    /**
+     * walk.
+     *
+     * Walks the contours of many squares of the same level with adaptive steps,
+     * evaluating the next sample of every contour in a single batch. The walk
+     * along every side starts with steps of 1/ADAPTIVE_INITIAL_STEPS of it and
+     * goes two steps at a time: the sample two steps ahead is evaluated together
+     * with the one in between, so that a whole turn of f over a step (which looks
+     * just like no turn at all) shows as two steep halves. A step over which f
+     * turns too much (see Walk.isSteep()) is halved, down to the smallest one,
+     * and the step after one over which f hardly turned is doubled. No step goes
+     * past a corner of the square, so that every side ends at a sample just like
+     * with fixed stepping. The walks stop as soon as the budget of the squares is
+     * exhausted, leaving the rest of their paths unsampled.
+     *
+     * @param f_z      the compiled function
+     * @param squares  the squares
+     * @param contours their contours, of which only the paths are used (replaced
+     *                 by the walked ones)
+     * @param count    number of squares
+     *
+     * @return bytes of the contours and batch buffers used
+     */
+    private static long walk(final CompiledComplexFunction f_z, final Solver[] squares, final Contour[] contours,
+            final int count) {
+        final double steep = steepRatio(squares[0].config);
+        final double steepCos = Math.cos(steep * Math.PI);
+        final double flatCos = Math.cos(SolverDefaults.ADAPTIVE_GROW_RATIO * steep * Math.PI);
+        final Walk[] walks = new Walk[count];
+        final int[] active = new int[count];
+        for (int s = 0; s < count; s++) {
+            walks[s] = new Walk(contours[s]);
+            active[s] = s;
+        }
+        final Solver[] batchSquares = new Solver[count];
+        final Contour[] probes = new Contour[count];
+        long bytes = 0;
+        final BudgetTracker budget = squares[0].budget;
+        int walking = count;
+        while (walking > 0 && (budget == null || !budget.isExhausted())) {
+            for (int j = 0; j < walking; j++) {
+                final int s = active[j];
+                batchSquares[j] = squares[s];
+                probes[j] = walks[s].probe();
+            }
+            bytes = Math.max(bytes, sample(f_z, batchSquares, probes, walking));
+            int m = 0;
+            for (int j = 0; j < walking; j++) {
+                final int s = active[j];
+                if (walks[s].advance(probes[j], steepCos, flatCos)) {
+                    active[m++] = s;
+                }
+            }
+            walking = m;
+        }
+        for (int s = 0; s < count; s++) {
+            contours[s] = walks[s].contour();
+            bytes += contours[s].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * steepRatio.
+     *
+     * deltaPhi() takes a jump of the phase above maxLegalDeltaphiRatio * PI for
+     * a crossing of the Re+ axis, which is right only as long as f turns by less
+     * than (2 - maxLegalDeltaphiRatio) * PI over a step.
+     *
+     * @param config the config of the solve
+     *
+     * @return the largest turn of f over an adaptive step, as a ratio of PI
+     */
+    private static double steepRatio(final SolverConfig config) {
+        final double ratio = config.getMaxLegalDeltaphiRatio();
+        return Math.min(ratio, 2 - ratio);
+    }
+
+    /**
+     * sample (batch version).
+     *
+     * Evaluates f_z at the unsampled samples of the contours of many squares of
+     * the same level (and the same solve) in a single batch.
+     *
+     * @param f_z      the function
+     * @param squares  the squares
+     * @param contours their contours
+     * @param count    number of squares
+     *
+     * @return bytes of the buffers used
+     */
+    private static long sample(final CompiledComplexFunction f_z, final Solver[] squares, final Contour[] contours,
+            final int count) {
+        int total = 0;
+        for (int s = 0; s < count; s++) {
+            total += contours[s].unsampled.length;
+        }
+        final long[] gx = new long[total];
+        final long[] gy = new long[total];
+        final double[] re = new double[total];
+        final double[] im = new double[total];
+        final double[] valueRe = new double[total];
+        final double[] valueIm = new double[total];
+        final Solver first = squares[0];
+        final double shift = first.contourShift();
+        int i = 0;
+        for (int s = 0; s < count; s++) {
+            final Solver square = squares[s];
+            final Contour contour = contours[s];
+            final int n = contour.n;
+            for (int k : contour.unsampled) {
+                gx[i] = contour.gx[k];
+                gy[i] = contour.gy[k];
+                if (first.samples != null) {
+                    /** Move the samples onto the grid of the squares' level to reuse known ones */
+                    gx[i] += square.x * n;
+                    gy[i] += square.y * n;
+                } else {
+                    re[i] = SampleCache.coordinate(square.A.getRe(), square.B.getRe() - square.A.getRe(), gx[i], n,
+                            shift);
+                    im[i] = SampleCache.coordinate(square.A.getIm(), square.D.getIm() - square.A.getIm(), gy[i], n,
+                            shift * SolverDefaults.CONTOUR_SHIFT_SLOPE);
+                }
+                i++;
+            }
+        }
+        int evaluated = total;
+        if (first.samples != null) {
+            evaluated = first.samples.evaluate(f_z, first.level, gx, gy, re, im, valueRe, valueIm, total);
+        } else {
+            f_z.evaluate(re, im, valueRe, valueIm, total);
+        }
+        if (first.budget != null) {
+            first.budget.count(evaluated);
+        }
+        i = 0;
+        for (int s = 0; s < count; s++) {
+            final Contour contour = contours[s];
+            for (int k : contour.unsampled) {
+                contour.re[k] = re[i];
+                contour.im[k] = im[i];
+                contour.valueRe[k] = valueRe[i];
+                contour.valueIm[k] = valueIm[i];
+                i++;
+            }
+            contour.unsampled = Contour.NOTHING_UNSAMPLED;
+        }
+        /** Grid coordinates, points and values of every sample */
+        return 48L * total;
+    }
+}
@@ -0,0 +1,67 @@
+package algorithm.solver;
+
+import java.util.Arrays;
+
+/**
+ * The class Frontier.
+ *
+ * Stack of squares waiting to be examined, stored as primitive cell ids
+ * instead of Solver objects: 16 bytes per square (the id and the winding
+ * number known from the parent, NaN if there is none).
+ *
+ * A cell id is the locational code of a square below the one the frontier
+ * started from: a leading 1 bit followed by the bits of its x and y
+ * interleaved (the Morton code), 2 bits per level. The starting square is
+ * ROOT and the children of a cell are (cell << 2 | quadrant), with quadrant
+ * 0, 1, 2, 3 for bottom left, bottom right, top left and top right.
+ *
+ * @Author Piotr Machura
+ */
+final class Frontier {
+
+    static final long ROOT = 1L;
+    /** Deepest level (below the square it starts from) a frontier can hold */
+    static final int MAX_LEVEL = 31;
+
+    long[] cells = new long[64];
+    double[] windings = new double[64];
+    int size;
+
+    void push(final long cell, final double winding) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, 2 * size);
+            windings = Arrays.copyOf(windings, 2 * size);
+        }
+        cells[size] = cell;
+        windings[size] = winding;
+        size++;
+    }
+
+    static int levelOf(final long cell) {
+        return (63 - Long.numberOfLeadingZeros(cell)) / 2;
+    }
+
+    static long xOf(final long cell) {
+        return compact(cell);
+    }
+
+    static long yOf(final long cell) {
+        return compact(cell >>> 1);
+    }
+
+    /**
+     * compact.
+     *
+     * @return the even bits of code (below the leading 1 bit of a cell id)
+     *         packed together
+     */
+    private static long compact(final long code) {
+        long bits = code & ~Long.highestOneBit(code) & 0x5555555555555555L;
+        bits = (bits | (bits >>> 1)) & 0x3333333333333333L;
+        bits = (bits | (bits >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        bits = (bits | (bits >>> 4)) & 0x00FF00FF00FF00FFL;
+        bits = (bits | (bits >>> 8)) & 0x0000FFFF0000FFFFL;
+        bits = (bits | (bits >>> 16)) & 0x00000000FFFFFFFFL;
+        return bits;
+    }
+}
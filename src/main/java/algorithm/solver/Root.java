@@ -0,0 +1,117 @@
+package algorithm.solver;
+
+import algorithm.parser.function.Complex;
+
+/**
+ * The class Root.
+ *
+ * A root found by the Solver together with its multiplicity (ex. 1 is a root
+ * of multiplicity 3 of (z-1)^3). Roots which are closer to each other than the
+ * requested accuracy are indistinguishable, so they are reported as a single
+ * multiple root. The cluster size tells how many candidate points found by the
+ * search were merged into this root.
+ *
+ * @Author Piotr Machura
+ */
+public final class Root implements Comparable<Root> {
+    private final Complex value;
+    private final int multiplicity;
+    private final int clusterSize;
+    /** True if other parts of the same root were counted by neighbouring squares */
+    private final boolean part;
+
+    /**
+     * Root constructor.
+     *
+     * @param value        the root
+     * @param multiplicity its multiplicity (at least 1)
+     */
+    public Root(final Complex value, final int multiplicity) {
+        this(value, multiplicity, 1);
+    }
+
+    /**
+     * Root constructor.
+     *
+     * @param value        the root
+     * @param multiplicity its multiplicity (at least 1)
+     * @param clusterSize  number of points merged into this root
+     */
+    public Root(final Complex value, final int multiplicity, final int clusterSize) {
+        this(value, multiplicity, clusterSize, false);
+    }
+
+    /**
+     * Root constructor.
+     *
+     * @param value        the root
+     * @param multiplicity its multiplicity (at least 1)
+     * @param clusterSize  number of points merged into this root
+     * @param part         true if the multiplicity is only the part of the root
+     *                     which lies inside a single square, the rest being found
+     *                     by its neighbours
+     */
+    Root(final Complex value, final int multiplicity, final int clusterSize, final boolean part) {
+        this.value = value;
+        this.multiplicity = multiplicity;
+        this.clusterSize = clusterSize;
+        this.part = part;
+    }
+
+    /**
+     * getValue.
+     *
+     * @return the root
+     */
+    public Complex getValue() {
+        return value;
+    }
+
+    /**
+     * getMultiplicity.
+     *
+     * @return the multiplicity of the root
+     */
+    public int getMultiplicity() {
+        return multiplicity;
+    }
+
+    /**
+     * getClusterSize.
+     *
+     * @return number of points found by the search which make up this root
+     */
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * isPart.
+     *
+     * @return true if the multiplicity is only a part of the root's, see
+     *         RootClusters
+     */
+    boolean isPart() {
+        return part;
+    }
+
+    /**
+     * compareTo.
+     *
+     * Roots are ordered by their values, see Complex.compareTo().
+     */
+    @Override
+    public int compareTo(final Root root) {
+        return value.compareTo(root.value);
+    }
+
+    /**
+     * toString.
+     *
+     * @return the root followed by its multiplicity if it's not a simple one
+     */
+    @Override
+    public String toString() {
+        return multiplicity == 1 ? value.toString() : value + " (x" + multiplicity + ")";
+    }
+}
@@ -0,0 +1,130 @@
+package algorithm.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import algorithm.parser.function.Complex;
+
+/**
+ * The class RootClusters.
+ *
+ * Merges roots which are the same point found more than once (ex. in
+ * neighbouring squares). Parts of a multiple root split between neighbouring
+ * squares (see Root.isPart()) make up its multiplicity together, while a root
+ * found again as a whole is a plain duplicate which adds nothing to it. Two
+ * roots belong to the same cluster if both their
+ * real and imaginary parts differ by at most the given distance, or if they
+ * are linked by a chain of such roots.
+ *
+ * Roots are put into a hash grid of cells with the sidelength of that distance,
+ * so every root has to be compared only with the roots of the 3x3 cells around
+ * its own. Clusters are tracked with union-find, which makes merging linear in
+ * the number of roots instead of quadratic.
+ *
+ * @Author Piotr Machura
+ */
+final class RootClusters {
+
+    private RootClusters() {
+    }
+
+    /**
+     * merge.
+     *
+     * @param roots    the roots, sorted in ascending order
+     * @param distance largest difference of coordinates of the same root
+     *
+     * @return one root per cluster, still sorted: its first root with the
+     *         cluster sizes of all of them added up and the largest of the
+     *         multiplicities of its whole roots and the sum of its parts
+     */
+    static ArrayList<Root> merge(final ArrayList<Root> roots, final double distance) {
+        final int n = roots.size();
+        final int[] parent = new int[n];
+        /** Roots of each cell, chained by index */
+        final Map<Long, Integer> cells = new HashMap<Long, Integer>();
+        final int[] next = new int[n];
+        final long[] cellX = new long[n];
+        final long[] cellY = new long[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            final Complex value = roots.get(i).getValue();
+            cellX[i] = (long) Math.floor(value.getRe() / distance);
+            cellY[i] = (long) Math.floor(value.getIm() / distance);
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    final Integer head = cells.get(key(cellX[i] + dx, cellY[i] + dy));
+                    for (int j = head == null ? -1 : head; j >= 0; j = next[j]) {
+                        /** Different cells may share a key */
+                        if (cellX[j] == cellX[i] + dx && cellY[j] == cellY[i] + dy
+                                && isSamePoint(roots.get(j).getValue(), value, distance)) {
+                            union(parent, i, j);
+                        }
+                    }
+                }
+            }
+            final Integer head = cells.put(key(cellX[i], cellY[i]), i);
+            next[i] = head == null ? -1 : head;
+        }
+
+        /** The first root of every cluster represents it */
+        final int[] multiplicity = new int[n];
+        final int[] parts = new int[n];
+        final int[] clusterSize = new int[n];
+        for (int i = 0; i < n; i++) {
+            final int first = find(parent, i);
+            final Root root = roots.get(i);
+            if (root.isPart()) {
+                parts[first] += root.getMultiplicity();
+            } else {
+                multiplicity[first] = Math.max(multiplicity[first], root.getMultiplicity());
+            }
+            clusterSize[first] += root.getClusterSize();
+        }
+        final ArrayList<Root> merged = new ArrayList<Root>();
+        for (int i = 0; i < n; i++) {
+            if (parent[i] == i) {
+                merged.add(new Root(roots.get(i).getValue(), Math.max(multiplicity[i], parts[i]), clusterSize[i]));
+            }
+        }
+        return merged;
+    }
+
+    private static long key(final long x, final long y) {
+        return x * 0x9E3779B97F4A7C15L + y;
+    }
+
+    private static boolean isSamePoint(final Complex a, final Complex b, final double distance) {
+        return Math.abs(a.getRe() - b.getRe()) <= distance && Math.abs(a.getIm() - b.getIm()) <= distance;
+    }
+
+    /**
+     * find.
+     *
+     * @return the first root of i's cluster (halving the path on the way)
+     */
+    private static int find(final int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * union.
+     *
+     * Joins the clusters of i and j, the one with the lower first root absorbs the
+     * other.
+     */
+    private static void union(final int[] parent, final int i, final int j) {
+        final int a = find(parent, i);
+        final int b = find(parent, j);
+        if (a < b) {
+            parent[b] = a;
+        } else if (b < a) {
+            parent[a] = b;
+        }
+    }
+}
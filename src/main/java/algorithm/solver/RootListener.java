@@ -0,0 +1,26 @@
+package algorithm.solver;
+
+/**
+ * The interface RootListener.
+ *
+ * Receives the roots of a solve as soon as each of them is confirmed, while
+ * the rest of the range is still being searched. Roots are rounded according
+ * to the accuracy level, but come in the order they were found and a multiple
+ * root lying on the boundary of two squares may be reported once for each of
+ * them (with a part of its multiplicity). The SolveResult of the solve holds
+ * the final, sorted and merged roots.
+ *
+ * A parallel solve calls rootFound() from its worker threads concurrently, so
+ * implementations have to be thread-safe and should return quickly.
+ *
+ * @Author Piotr Machura
+ */
+public interface RootListener {
+
+    /**
+     * rootFound.
+     *
+     * @param root the root which has just been confirmed
+     */
+    void rootFound(Root root);
+}
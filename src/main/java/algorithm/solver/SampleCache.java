@@ -0,0 +1,268 @@
+package algorithm.solver;
+
+import java.util.Arrays;
+
+import algorithm.parser.function.CompiledComplexFunction;
+
+/**
+ * The class SampleCache.
+ *
+ * Values of f at contour samples of a single solve. Samples lie on a dyadic
+ * grid anchored at the origin: at level L the grid spacing is
+ * 2 * range / (steps * 2^L), where range is the one the cache was made for. A
+ * sample is identified by its level and integer grid coordinates, reduced to
+ * the lowest level at which it exists, so that a point shared by a parent and
+ * its children (or by neighbours) is evaluated only once.
+ *
+ * Squares address their samples in the frame of their starting square (see
+ * frame()), so starting squares of different ranges - the ones probed by the
+ * automatic range search - share the samples they have in common. The samples
+ * of the range 2^k times smaller than the cache's lie on the contours of its
+ * level k + 1 squares.
+ *
+ * The cache is direct-mapped with a fixed number of entries: a new sample
+ * simply replaces whatever occupied its slot.
+ *
+ * @Author Piotr Machura
+ */
+final class SampleCache {
+
+    private final double shiftRe;
+    private final double shiftIm;
+    /** Range of the square the grid was made for and its sidelength */
+    private final long range;
+    private final double side;
+    private final int steps;
+    /** Level of the grid of the frame's level 0 and the grid spacings per frame spacing */
+    private final int depth;
+    private final long scale;
+
+    private final int mask;
+    private final int[] keyLevel;
+    private final long[] keyX;
+    private final long[] keyY;
+    private final double[] valueRe;
+    private final double[] valueIm;
+
+    /**
+     * SampleCache constructor.
+     *
+     * Makes the cache in the frame of the starting square of range.
+     *
+     * @param range    half of the sidelength of the starting square, centered at
+     *                 the origin
+     * @param shiftRe  how far right every sample is moved
+     * @param shiftIm  how far up every sample is moved
+     * @param steps    number of samples per sidelength
+     * @param capacity number of entries (rounded up to a power of 2)
+     */
+    SampleCache(final long range, final double shiftRe, final double shiftIm, final int steps, final int capacity) {
+        this.shiftRe = shiftRe;
+        this.shiftIm = shiftIm;
+        this.range = range;
+        this.side = 2d * range;
+        this.steps = steps;
+        this.depth = 1;
+        this.scale = 2;
+        final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = size - 1;
+        keyLevel = new int[size];
+        keyX = new long[size];
+        keyY = new long[size];
+        valueRe = new double[size];
+        valueIm = new double[size];
+        /** No sample has a negative level, so all slots start empty */
+        Arrays.fill(keyLevel, -1);
+    }
+
+    private SampleCache(final SampleCache cache, final int depth, final long scale) {
+        this.shiftRe = cache.shiftRe;
+        this.shiftIm = cache.shiftIm;
+        this.range = cache.range;
+        this.side = cache.side;
+        this.steps = cache.steps;
+        this.depth = depth;
+        this.scale = scale;
+        this.mask = cache.mask;
+        this.keyLevel = cache.keyLevel;
+        this.keyX = cache.keyX;
+        this.keyY = cache.keyY;
+        this.valueRe = cache.valueRe;
+        this.valueIm = cache.valueIm;
+    }
+
+    /**
+     * frame.
+     *
+     * The level l grid coordinate g of the starting square of range r = range *
+     * a / 2^m (a and m integers) is the grid coordinate scale * g - scale / 2 *
+     * steps * 2^l at level l + depth, with depth = m + 1 and scale = 2a. Ranges
+     * which are not such fractions of the cache's have samples which do not lie
+     * on its grid.
+     *
+     * @param r half of the sidelength of a starting square, centered at the
+     *          origin
+     *
+     * @return the cache in the frame of that square, sharing its samples with
+     *         this one, null if they do not lie on the grid
+     */
+    SampleCache frame(final long r) {
+        long a = r;
+        long b = range;
+        while (b != 0) {
+            final long c = a % b;
+            a = b;
+            b = c;
+        }
+        final long denominator = range / a;
+        if (Long.bitCount(denominator) != 1) {
+            return null;
+        }
+        return new SampleCache(this, Long.numberOfTrailingZeros(denominator) + 1, 2 * (r / a));
+    }
+
+    /**
+     * evaluate.
+     *
+     * Finds f at n grid samples of the same level. Samples not found in the cache
+     * are evaluated in a single batch (each distinct one once, even if it is
+     * repeated in the batch) and stored.
+     *
+     * @param f_z   the function
+     * @param level level of the grid in the cache's frame
+     * @param gx    horizontal grid coordinates of the samples in the frame
+     * @param gy    vertical grid coordinates of the samples in the frame
+     * @param re    receives real parts of the samples
+     * @param im    receives imaginary parts of the samples
+     * @param outRe receives Re f at the samples (NaN where undefined)
+     * @param outIm receives Im f at the samples (NaN where undefined)
+     * @param n     number of samples
+     *
+     * @return number of samples which had to be evaluated
+     */
+    int evaluate(final CompiledComplexFunction f_z, final int level, final long[] gx, final long[] gy,
+            final double[] re, final double[] im, final double[] outRe, final double[] outIm, final int n) {
+        final int[] canonicalLevel = new int[n];
+        final long[] canonicalX = new long[n];
+        final long[] canonicalY = new long[n];
+        final int[] missing = new int[n];
+        final int gridLevel = level + depth;
+        final long corner = (scale / 2) * steps << level;
+        int m = 0;
+        synchronized (keyLevel) {
+            for (int k = 0; k < n; k++) {
+                /** Move the sample onto the grid and reduce it to the lowest level at which it exists */
+                final long sx = scale * gx[k] - corner;
+                final long sy = scale * gy[k] - corner;
+                final int shift = (sx | sy) == 0 ? gridLevel
+                        : Math.min(gridLevel, Long.numberOfTrailingZeros(sx | sy));
+                final int l = gridLevel - shift;
+                final long x = sx >> shift;
+                final long y = sy >> shift;
+                canonicalLevel[k] = l;
+                canonicalX[k] = x;
+                canonicalY[k] = y;
+                re[k] = coordinate(0, Math.scalb(side, -l), x, steps, shiftRe);
+                im[k] = coordinate(0, Math.scalb(side, -l), y, steps, shiftIm);
+
+                final int slot = slot(l, x, y);
+                if (keyLevel[slot] == l && keyX[slot] == x && keyY[slot] == y) {
+                    outRe[k] = valueRe[slot];
+                    outIm[k] = valueIm[slot];
+                } else {
+                    missing[m++] = k;
+                }
+            }
+        }
+        if (m == 0) {
+            return 0;
+        }
+
+        /** Neighbouring squares of a batch share samples - find each distinct one */
+        final int[] distinct = new int[m];
+        final int[] original = new int[m];
+        final int tableMask = (Integer.highestOneBit(Math.max(2 * m - 1, 1)) << 1) - 1;
+        final int[] table = new int[tableMask + 1];
+        Arrays.fill(table, -1);
+        int d = 0;
+        for (int i = 0; i < m; i++) {
+            final int k = missing[i];
+            int slot = hash(canonicalLevel[k], canonicalX[k], canonicalY[k]) & tableMask;
+            while (table[slot] >= 0 && !isSameSample(missing[original[table[slot]]], k, canonicalLevel,
+                    canonicalX, canonicalY)) {
+                slot = (slot + 1) & tableMask;
+            }
+            if (table[slot] < 0) {
+                table[slot] = d;
+                original[d++] = i;
+            }
+            distinct[i] = table[slot];
+        }
+
+        /** Evaluate all missing samples at once */
+        final double[] missingRe = new double[d];
+        final double[] missingIm = new double[d];
+        for (int j = 0; j < d; j++) {
+            missingRe[j] = re[missing[original[j]]];
+            missingIm[j] = im[missing[original[j]]];
+        }
+        final double[] missingValueRe = new double[d];
+        final double[] missingValueIm = new double[d];
+        f_z.evaluate(missingRe, missingIm, missingValueRe, missingValueIm, d);
+
+        synchronized (keyLevel) {
+            for (int i = 0; i < m; i++) {
+                final int k = missing[i];
+                outRe[k] = missingValueRe[distinct[i]];
+                outIm[k] = missingValueIm[distinct[i]];
+                final int slot = slot(canonicalLevel[k], canonicalX[k], canonicalY[k]);
+                keyLevel[slot] = canonicalLevel[k];
+                keyX[slot] = canonicalX[k];
+                keyY[slot] = canonicalY[k];
+                valueRe[slot] = outRe[k];
+                valueIm[slot] = outIm[k];
+            }
+        }
+        return d;
+    }
+
+    /**
+     * coordinate.
+     *
+     * A coordinate of a grid sample, computed the same way with the cache and
+     * without it. For the squares of a solve the corner and the sidelength are
+     * dyadic, so corner * steps + side * g is exact and the point is rounded only
+     * once. A point shared by several squares (or taken from the cache, whose
+     * grid has its corner at the origin) is then the same whichever of them
+     * computes it.
+     *
+     * @param corner the coordinate of the square's bottom-left corner
+     * @param side   sidelength of the square
+     * @param g      grid coordinate of the sample within the square
+     * @param steps  number of samples per sidelength
+     * @param shift  how far the sample is moved off the grid line
+     *
+     * @return corner + side * g / steps + shift
+     */
+    static double coordinate(final double corner, final double side, final long g, final int steps,
+            final double shift) {
+        return (corner * steps + side * g) / steps + shift;
+    }
+
+    private static boolean isSameSample(final int a, final int b, final int[] level, final long[] x,
+            final long[] y) {
+        return level[a] == level[b] && x[a] == x[b] && y[a] == y[b];
+    }
+
+    private int slot(final int level, final long x, final long y) {
+        return hash(level, x, y) & mask;
+    }
+
+    private static int hash(final int level, final long x, final long y) {
+        long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + level;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+}
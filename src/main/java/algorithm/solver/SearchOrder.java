@@ -0,0 +1,15 @@
+package algorithm.solver;
+
+/**
+ * Search order enum
+ *
+ * @param DEPTH_FIRST   examines every square down to its roots before moving
+ *                      on to the next one
+ * @param BREADTH_FIRST examines all squares of a level together, evaluating
+ *                      the contour samples of the whole level in one batch
+ *
+ * @Author Piotr Machura
+ */
+public enum SearchOrder {
+    DEPTH_FIRST, BREADTH_FIRST
+}
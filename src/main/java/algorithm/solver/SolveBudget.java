@@ -0,0 +1,68 @@
+package algorithm.solver;
+
+/**
+ * The class SolveBudget.
+ *
+ * Limits on the work a single solve may do: wall-clock time, number of
+ * evaluations of the function (contour samples and Newton's steps) and depth
+ * of the square tree (number of splits of the starting square). When any of
+ * them runs out the solve stops and returns what it has found so far, see
+ * SolveResult.
+ *
+ * @Author Piotr Machura
+ */
+public final class SolveBudget {
+
+    /** No limits at all */
+    public static final SolveBudget UNLIMITED = new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final long timeoutMillis;
+    private final long maxEvaluations;
+    private final int maxDepth;
+
+    /**
+     * SolveBudget constructor.
+     *
+     * @param timeoutMillis  time after which the solve stops (Long.MAX_VALUE for
+     *                       no limit)
+     * @param maxEvaluations number of evaluations of f after which the solve
+     *                       stops (Long.MAX_VALUE for no limit)
+     * @param maxDepth       squares split more times than this are not examined
+     *                       (Integer.MAX_VALUE for no limit)
+     */
+    public SolveBudget(final long timeoutMillis, final long maxEvaluations, final int maxDepth) {
+        if (timeoutMillis < 0 || maxEvaluations < 0 || maxDepth < 0) {
+            throw new IllegalArgumentException("Budget limits cannot be negative");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.maxEvaluations = maxEvaluations;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * getTimeoutMillis.
+     *
+     * @return the time limit in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * getMaxEvaluations.
+     *
+     * @return the limit on evaluations of f
+     */
+    public long getMaxEvaluations() {
+        return maxEvaluations;
+    }
+
+    /**
+     * getMaxDepth.
+     *
+     * @return the limit on the depth of the square tree
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
@@ -0,0 +1,176 @@
+package algorithm.solver;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The class SolveOptions.
+ *
+ * Immutable set of the options of a single solve: the pool to run it on, its
+ * budget, the listener to stream roots to, whether poles are looked for too and
+ * the config to calibrate it with. Instances are made with a Builder, the
+ * options which are not set keep their defaults (see DEFAULT).
+ *
+ * @Author Piotr Machura
+ */
+public final class SolveOptions {
+
+    /**
+     * A sequential solve with no budget, listener or poles, calibrated with the
+     * default config of the Solver
+     */
+    public static final SolveOptions DEFAULT = new Builder().build();
+
+    private final ForkJoinPool pool;
+    private final double sequentialSideRatio;
+    private final SolveBudget budget;
+    private final RootListener listener;
+    private final boolean findPoles;
+    private final SolverConfig config;
+
+    private SolveOptions(final Builder builder) {
+        this.pool = builder.pool;
+        this.sequentialSideRatio = builder.sequentialSideRatio;
+        this.budget = builder.budget;
+        this.listener = builder.listener;
+        this.findPoles = builder.findPoles;
+        this.config = builder.config;
+    }
+
+    /**
+     * builder.
+     *
+     * @return a builder starting from the default options
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * toBuilder.
+     *
+     * @return a builder starting from these options
+     */
+    public Builder toBuilder() {
+        return new Builder().pool(pool).sequentialSideRatio(sequentialSideRatio).budget(budget).listener(listener)
+                .findPoles(findPoles).config(config);
+    }
+
+    /**
+     * getPool.
+     *
+     * @return the pool to run on (null to run on the calling thread)
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * getSequentialSideRatio.
+     *
+     * @return squares with a sidelength below this fraction of the starting
+     *         square's sidelength are not split into further tasks
+     */
+    public double getSequentialSideRatio() {
+        return sequentialSideRatio;
+    }
+
+    /**
+     * getBudget.
+     *
+     * @return limits on time, evaluations of f and depth
+     */
+    public SolveBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * getListener.
+     *
+     * @return the listener to notify about every root found (null if there is
+     *         none)
+     */
+    public RootListener getListener() {
+        return listener;
+    }
+
+    /**
+     * isFindPoles.
+     *
+     * @return true if the poles are looked for too (see SolveResult.getPoles())
+     */
+    public boolean isFindPoles() {
+        return findPoles;
+    }
+
+    /**
+     * getConfig.
+     *
+     * @return the config to calibrate the solver with (null for the default
+     *         config of the Solver at the time of the solve)
+     */
+    public SolverConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * The class Builder.
+     *
+     * Collects the options of a solve, starting from the default ones.
+     */
+    public static final class Builder {
+        private ForkJoinPool pool = null;
+        private double sequentialSideRatio = SolverDefaults.SEQUENTIAL_SIDE_RATIO;
+        private SolveBudget budget = SolveBudget.UNLIMITED;
+        private RootListener listener = null;
+        private boolean findPoles = false;
+        private SolverConfig config = null;
+
+        private Builder() {
+        }
+
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public Builder sequentialSideRatio(final double sequentialSideRatio) {
+            this.sequentialSideRatio = sequentialSideRatio;
+            return this;
+        }
+
+        public Builder budget(final SolveBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        public Builder listener(final RootListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder findPoles(final boolean findPoles) {
+            this.findPoles = findPoles;
+            return this;
+        }
+
+        public Builder config(final SolverConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        /**
+         * build.
+         *
+         * @return the options collected so far
+         */
+        public SolveOptions build() {
+            if (budget == null) {
+                throw new IllegalArgumentException("The budget cannot be null, use SolveBudget.UNLIMITED");
+            }
+            if (sequentialSideRatio < 0) {
+                throw new IllegalArgumentException("The sequential side ratio cannot be negative");
+            }
+            return new SolveOptions(this);
+        }
+    }
+}
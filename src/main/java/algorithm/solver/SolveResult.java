@@ -0,0 +1,107 @@
+package algorithm.solver;
+
+import java.util.ArrayList;
+
+/**
+ * The class SolveResult.
+ *
+ * Roots found by a solve with a SolveBudget. If the budget ran out before the
+ * whole range was searched the result is partial: the roots are the ones
+ * confirmed so far and the squares which were not examined are listed, so that
+ * they can be searched again (ex. with a bigger budget) or reported.
+ *
+ * @Author Piotr Machura
+ */
+public final class SolveResult {
+    private final ArrayList<Root> roots;
+    private final ArrayList<Root> poles;
+    private final boolean partial;
+    private final ArrayList<Solver> unresolved;
+    private final long evaluations;
+    private final long[] levelMemory;
+
+    /**
+     * SolveResult constructor.
+     *
+     * @param roots   the roots found
+     * @param tracker the budget of the solve
+     */
+    SolveResult(final ArrayList<Root> roots, final BudgetTracker tracker) {
+        this(roots, new ArrayList<Root>(), tracker);
+    }
+
+    /**
+     * SolveResult constructor (poles version).
+     *
+     * @param roots   the roots found
+     * @param poles   the poles found (with their orders)
+     * @param tracker the budget of the solve
+     */
+    SolveResult(final ArrayList<Root> roots, final ArrayList<Root> poles, final BudgetTracker tracker) {
+        this.roots = roots;
+        this.poles = poles;
+        this.partial = tracker.isPartial();
+        this.unresolved = new ArrayList<Solver>(tracker.getUnresolved());
+        this.evaluations = tracker.getEvaluations();
+        this.levelMemory = tracker.getLevelMemory();
+    }
+
+    /**
+     * getRoots.
+     *
+     * @return the roots found, sorted by their values
+     */
+    public ArrayList<Root> getRoots() {
+        return roots;
+    }
+
+    /**
+     * getPoles.
+     *
+     * @return the poles found (with their orders as multiplicities), sorted by
+     *         their values, empty unless the solve looked for them (see
+     *         SolveOptions.isFindPoles())
+     */
+    public ArrayList<Root> getPoles() {
+        return poles;
+    }
+
+    /**
+     * isPartial.
+     *
+     * @return true if the budget ran out (or the solve was interrupted) before
+     *         the whole range was searched
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * getUnresolved.
+     *
+     * @return the squares which were not examined (see Solver.getCorners())
+     */
+    public ArrayList<Solver> getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * getEvaluations.
+     *
+     * @return number of evaluations of f done by the solve
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * getLevelMemory.
+     *
+     * @return bytes of the contour sample buffers used by each level of the
+     *         quadtree (indexed by level) in a breadth-first search, empty for a
+     *         depth-first one
+     */
+    public long[] getLevelMemory() {
+        return levelMemory.clone();
+    }
+}
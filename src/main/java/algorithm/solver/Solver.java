@@ -1,16 +1,20 @@
 package algorithm.solver;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import algorithm.parser.exception.CalculatorException;
 import algorithm.parser.function.Complex;
-import algorithm.parser.main.Parser;
-import algorithm.parser.util.Variable;
+import algorithm.parser.function.CompiledComplexFunction;
 
 /*
  *        Square diagram:
@@ -31,21 +35,32 @@ import algorithm.parser.util.Variable;
  */
 public class Solver {
 
-    /** Automatic range founder parameters */
-    private static int AUTO_RANGE_START = SolverDefaults.AUTO_RANGE_START;
-    private static int AUTO_RANGE_INCREMENT = SolverDefaults.AUTO_RANGE_INCREMENT;
-    private static int AUTO_RANGE_MAX = SolverDefaults.AUTO_RANGE_MAX;
+    /** Config of the solves which are not given one (see readConfig()) */
+    private static volatile SolverConfig defaultConfig = SolverConfig.DEFAULT;
 
-    /** Algorithm adjustments */
-    private static double MAX_LEGAL_DELTAPHI_RATIO = SolverDefaults.MAX_LEGAL_DELTAPHI_RATIO;
-    private static int STEPS_PER_SIDELENGTH = SolverDefaults.STEPS_PER_SIDELENGTH;
-    private static double MIN_LEGAL_WINDING_NUMBER_RATIO = SolverDefaults.MIN_LEGAL_WINDING_NUMBER_RATIO;
-    private static double MAX_LEGAL_ABS_OF_ROOT = SolverDefaults.MAX_LEGAL_ABS_OF_ROOT;
+    /** Returned by examine() when a square needs no further splitting */
+    static final Solver[] NO_CHILDREN = new Solver[0];
 
     Complex A, B, C, D;
     Complex AB_mid, BC_mid, CD_mid, AD_mid, MIDDLE;
     double area;
+    /** Winding number if it is already known (from the parent), NaN otherwise */
+    double winding = Double.NaN;
+    /** Winding number of the parent of a breadth-first last child (see viableChildren()), NaN otherwise */
+    double parentWinding = Double.NaN;
+    /** Level (number of splits of the starting square) and position on its grid */
+    int level;
+    long x, y;
+    /** Samples shared by all squares of a single solve (null for other squares) */
+    SampleCache samples;
+    /** Collection to put poles in (null if poles are not looked for) */
+    Collection<Root> poles;
+    /** Budget of the solve (null for squares which are not part of a solve) */
+    BudgetTracker budget;
+    /** Listener to notify about every root found (null if there is none) */
+    RootListener listener;
     final SolverAccuracy accuracyLevel;
+    final SolverConfig config;
     final double MIN_LEGAL_AREA;
 
     /**
@@ -63,64 +78,381 @@ public class Solver {
      *         according to method described in Complex.compareTo() function.
      */
     public static ArrayList<Complex> solve(final int range, final String f_z, final SolverAccuracy accuracyLevel) {
-        ArrayList<Complex> solutions = new ArrayList<Complex>();
-        if (range == SolverDefaults.AUTO_RANGE_FAILED) {
-            return solutions;
-        } else {
-            /**
-             * To avoid roots and poles canceling each other: divide starting rectangle into
-             * 64 tiny squares first and solve in each of them.
-             */
-            Solver[] children1 = new Solver(range, accuracyLevel).getChildren();
-            for (Solver child1 : children1) {
-                Solver[] children2 = child1.getChildren();
-                for (Solver child2 : children2) {
-                    Solver[] children3 = child2.getChildren();
-                    for (Solver child3 : children3) {
-                        child3.solveInside(f_z, solutions);
-                    }
+        try {
+            return valuesOf(Solver.solve(range, new CompiledComplexFunction(f_z), accuracyLevel, SolveOptions.DEFAULT)
+                    .getRoots());
+        } catch (CalculatorException e) {
+            /** A function which is not well-formed has no roots */
+            return new ArrayList<Complex>();
+        }
+    }
+
+    /**
+     * solve (compiled version).
+     *
+     * Same as solve(int, String, SolverAccuracy), but takes a function which has
+     * already been parsed and the options of the solve: the pool to run on, the
+     * budget, the listener to stream roots to, whether to find the poles too and
+     * the config to calibrate the solver with (see SolveOptions).
+     *
+     * With a pool squares are examined as fork/join tasks. If the budget runs out
+     * the roots confirmed up to then are returned together with the squares which
+     * were not examined. Every root comes with its multiplicity: a multiple root is
+     * found with the modified Newton's iteration z -> z - m*f(z)/f'(z) as soon as
+     * a square's winding number m turns out to belong to a single point.
+     *
+     * @param range         half of the sidelength of rectangle to look in.
+     * @param f_z           the compiled function to solve.
+     * @param accuracyLevel the desired accuracyLevel.
+     * @param options       the options of the solve.
+     *
+     * @return the roots (and poles) found inside range sorted by their values,
+     *         marked as partial if the budget ran out
+     */
+    public static SolveResult solve(final int range, final CompiledComplexFunction f_z,
+            final SolverAccuracy accuracyLevel, final SolveOptions options) {
+        return Solver.search(range, f_z, accuracyLevel, options, new BudgetTracker(options.getBudget()));
+    }
+
+    /**
+     * solveAsync.
+     *
+     * Starts solve(int, CompiledComplexFunction, SolverAccuracy, SolveOptions) on
+     * the pool of the options (or on the common pool if there is none) and
+     * returns at once. The budget's timeout counts from this call. Cancelling the
+     * returned future stops the search as if its budget ran out.
+     *
+     * @param range         half of the sidelength of rectangle to look in.
+     * @param f_z           the compiled function to solve.
+     * @param accuracyLevel the desired accuracyLevel.
+     * @param options       the options of the solve.
+     *
+     * @return the future result of the solve
+     */
+    public static CompletableFuture<SolveResult> solveAsync(final int range, final CompiledComplexFunction f_z,
+            final SolverAccuracy accuracyLevel, final SolveOptions options) {
+        final BudgetTracker tracker = new BudgetTracker(options.getBudget());
+        final CompletableFuture<SolveResult> result = new CompletableFuture<SolveResult>() {
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                tracker.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        final ForkJoinPool pool = options.getPool() != null ? options.getPool() : ForkJoinPool.commonPool();
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(Solver.search(range, f_z, accuracyLevel, options, tracker));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
                 }
             }
+        });
+        return result;
+    }
+
+    /**
+     * search.
+     *
+     * Body of all the solve() methods.
+     *
+     * @param range         half of the sidelength of rectangle to look in.
+     * @param f_z           the compiled function to solve.
+     * @param accuracyLevel the desired accuracyLevel.
+     * @param options       the options of the solve.
+     * @param tracker       the budget of the solve.
+     *
+     * @return the roots found inside range sorted by their values
+     */
+    private static SolveResult search(final int range, final CompiledComplexFunction f_z,
+            final SolverAccuracy accuracyLevel, final SolveOptions options, final BudgetTracker tracker) {
+        if (range == SolverDefaults.AUTO_RANGE_FAILED) {
+            return new SolveResult(new ArrayList<Root>(), tracker);
+        }
+        return Solver.search(startSquare(range, accuracyLevel, configOf(options), null), f_z, options, tracker);
+    }
+
+    /**
+     * configOf.
+     *
+     * @param options the options of a solve
+     *
+     * @return the config of the solve
+     */
+    private static SolverConfig configOf(final SolveOptions options) {
+        return options.getConfig() != null ? options.getConfig() : defaultConfig;
+    }
 
-            /** Set up an approprieate rounder */
-            double rd = SolverDefaults.ROUNDER_MED;
-            if (accuracyLevel == SolverAccuracy.LOW) {
-                rd = SolverDefaults.ROUNDER_LOW;
-            } else if (accuracyLevel == SolverAccuracy.HIGH) {
-                rd = SolverDefaults.ROUNDER_HIGH;
+    /**
+     * search (starting square version).
+     *
+     * @param start   the starting square, with the samples shared by the whole
+     *                solve.
+     * @param f_z     the compiled function to solve.
+     * @param options the options of the solve.
+     * @param tracker the budget of the solve.
+     *
+     * @return the roots found inside the starting square sorted by their values
+     */
+    private static SolveResult search(final Solver start, final CompiledComplexFunction f_z,
+            final SolveOptions options, final BudgetTracker tracker) {
+        final ForkJoinPool pool = options.getPool();
+        ArrayList<Root> solutions = new ArrayList<Root>();
+        /** Poles may be found by concurrent tasks */
+        final Collection<Root> foundPoles = options.isFindPoles() ? new ConcurrentLinkedQueue<Root>() : null;
+        start.poles = foundPoles;
+        start.budget = tracker;
+        start.listener = options.getListener();
+        /**
+         * To avoid roots and poles canceling each other: divide starting rectangle into
+         * a grid of tiny squares first and solve in each of them. Their winding
+         * numbers are found by sweeping the grid lines.
+         */
+        final int gridLevel = start.initialGridLevel(f_z);
+        final int side = 1 << gridLevel;
+        final Solver[] squares = start.grid(gridLevel);
+        if (!tracker.isExhausted()) {
+            final long bytes = ContourBatches.sweepWindingNumbers(f_z, squares, side);
+            if (start.config.getSearchOrder() == SearchOrder.BREADTH_FIRST) {
+                tracker.countMemory(gridLevel, bytes);
             }
-            /** Round decimals according to accuracyLevel */
-            for (int i = 0; i < solutions.size(); i++) {
-                double reI = (double) Math.round(solutions.get(i).getRe() * rd) / rd;
-                double imI = (double) Math.round(solutions.get(i).getIm() * rd) / rd;
-                solutions.set(i, new Complex(reI, imI));
+        }
+
+        if (start.config.getSearchOrder() == SearchOrder.BREADTH_FIRST) {
+            /** Chunks of a level add their roots concurrently */
+            final Collection<Root> found = new ConcurrentLinkedQueue<Root>();
+            BreadthFirstSearch.solve(squares, f_z, found, pool, tracker);
+            solutions.addAll(found);
+        } else if (pool == null) {
+            for (Solver square : squares) {
+                square.solveInside(f_z, solutions);
             }
+        } else {
+            /** Tasks add their roots concurrently */
+            final Collection<Root> found = new ConcurrentLinkedQueue<Root>();
+            final double sequentialSide = (start.B.getRe() - start.A.getRe()) * options.getSequentialSideRatio();
+            invoke(pool, new SolveTask(squares, f_z, found, sequentialSide * sequentialSide), tracker);
+            solutions.addAll(found);
+        }
 
-            /** Remove duplicates */
-            for (int i = 0; i < solutions.size() - 1; i++) {
-                double reI = solutions.get(i).getRe();
-                double imI = solutions.get(i).getIm();
-                for (int j = i + 1; j < solutions.size(); j++) {
-                    /** Compare with all other solutions and delete them if duplicated */
-                    double reJ = solutions.get(j).getRe();
-                    double imJ = solutions.get(j).getIm();
-                    if (Math.abs(reJ - reI) <= 10 / rd && Math.abs(imJ - imI) <= 10 / rd) {
-                        solutions.remove(j);
-                    }
+        final ArrayList<Root> poles = new ArrayList<Root>();
+        if (foundPoles != null) {
+            poles.addAll(foundPoles);
+            roundAndRemoveDuplicates(poles, start.accuracyLevel);
+        }
+        roundAndRemoveDuplicates(solutions, start.accuracyLevel);
+        return new SolveResult(solutions, poles, tracker);
+    }
+
+    /**
+     * invoke.
+     *
+     * Runs the task on the pool and waits for it to finish.
+     *
+     * @param pool    the pool to run on
+     * @param task    the task
+     * @param tracker the budget of the solve, used up if the wait is interrupted
+     */
+    static void invoke(final ForkJoinPool pool, final ForkJoinTask<?> task, final BudgetTracker tracker) {
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            /** Stop the tasks still running and return what was found so far */
+            tracker.cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            tracker.cancel();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * turnAlong.
+     *
+     * @param f_z  the compiled function
+     * @param edge an evaluated edge
+     *
+     * @return the number of turns f makes around 0 along the edge, NaN if f has no
+     *         phase at one of its samples or the walk along it was stopped
+     */
+    double turnAlong(final CompiledComplexFunction f_z, final Contour edge) {
+        if (edge.unsampled.length > 0) {
+            return Double.NaN;
+        }
+        final double[] valueRe = edge.valueRe;
+        final double[] valueIm = edge.valueIm;
+        if (this.config.getWindingKernel() == WindingKernel.QUADRANT) {
+            long crossings = 0;
+            for (int k = 0; k < edge.size; k++) {
+                if (quadrant(valueRe[k], valueIm[k]) < 0) {
+                    return Double.NaN;
+                }
+                if (k > 0) {
+                    crossings += crossings(f_z, edge.re[k - 1], edge.im[k - 1], valueRe[k - 1], valueIm[k - 1],
+                            edge.re[k], edge.im[k], valueRe[k], valueIm[k], this.shortestStep(),
+                            nextToMinimum(edge, k - 1));
                 }
             }
-            Collections.sort(solutions);
-            return solutions;
+            return crossings / 4d;
+        }
+        double turn = 0;
+        double prevPhi = phaseOf(valueRe[0], valueIm[0]);
+        for (int k = 1; k < edge.size; k++) {
+            final double nextPhi = phaseOf(valueRe[k], valueIm[k]);
+            /** NaN spreads to the sum */
+            if (Double.isNaN(prevPhi) || Double.isNaN(nextPhi)) {
+                turn += this.deltaPhi(prevPhi, nextPhi);
+            } else {
+                turn += this.phaseChange(f_z, edge.re[k - 1], edge.im[k - 1], valueRe[k - 1], valueIm[k - 1],
+                        edge.re[k], edge.im[k], valueRe[k], valueIm[k], this.shortestStep(),
+                        nextToMinimum(edge, k - 1));
+            }
+            prevPhi = nextPhi;
+        }
+        return turn / (2 * Math.PI);
+    }
+
+    /**
+     * startSquare.
+     *
+     * @param range         half of the sidelength of rectangle to look in.
+     * @param accuracyLevel the desired accuracyLevel.
+     * @param config        the values to calibrate the solver with.
+     * @param grid          the sample cache to share (null for an empty one)
+     *
+     * @return the square of a solve in range, sharing the samples of grid if
+     *         they lie on it (see SampleCache.frame()), otherwise with an empty
+     *         sample cache
+     */
+    static Solver startSquare(final int range, final SolverAccuracy accuracyLevel,
+            final SolverConfig config, final SampleCache grid) {
+        final Solver start = new Solver(range, accuracyLevel, config);
+        if (grid != null) {
+            start.samples = grid.frame(range);
+        }
+        if (start.samples == null) {
+            final double shift = start.contourShift();
+            start.samples = new SampleCache(range, shift, shift * SolverDefaults.CONTOUR_SHIFT_SLOPE,
+                    config.getStepsPerSidelength(), SolverDefaults.SAMPLE_CACHE_SIZE);
+        }
+        return start;
+    }
+
+    /**
+     * contourShift.
+     *
+     * @return how far right every contour sample is moved (see
+     *         SolverDefaults.CONTOUR_SHIFT_RATIO)
+     */
+    double contourShift() {
+        return Math.sqrt(MIN_LEGAL_AREA) * SolverDefaults.CONTOUR_SHIFT_RATIO;
+    }
+
+    /**
+     * center.
+     *
+     * @return the middle of the square's contour, which is MIDDLE moved by the
+     *         shift of the contour
+     */
+    private Complex center() {
+        final double shift = this.contourShift();
+        return new Complex(MIDDLE.getRe() + shift, MIDDLE.getIm() + shift * SolverDefaults.CONTOUR_SHIFT_SLOPE);
+    }
+
+    /**
+     * shortestStep.
+     *
+     * @return half the distance of the contour from the lines of the grid, the
+     *         shortest step the winding kernels bisect (see phaseChange() and
+     *         crossings())
+     */
+    private double shortestStep() {
+        return this.contourShift() * SolverDefaults.CONTOUR_SHIFT_SLOPE / 2;
+    }
+
+    /**
+     * roundAndRemoveDuplicates.
+     *
+     * Rounds the points according to accuracyLevel, sorts them and merges the
+     * ones which are the same point found in neighbouring squares (see
+     * RootClusters). Neighbours split a multiple root lying on their common
+     * boundary, so the multiplicities of such parts add up, while the same point
+     * found more than once keeps its multiplicity. Points of the same root found
+     * in neighbouring smallest squares are a sidelength of such square (1 / rd)
+     * apart once rounded, roots further apart are told apart.
+     *
+     * @param solutions     the points to process
+     * @param accuracyLevel the desired accuracyLevel
+     */
+    private static void roundAndRemoveDuplicates(final ArrayList<Root> solutions,
+            final SolverAccuracy accuracyLevel) {
+        final double rd = rounder(accuracyLevel);
+        /** Round decimals according to accuracyLevel */
+        for (int i = 0; i < solutions.size(); i++) {
+            solutions.set(i, round(solutions.get(i), rd));
+        }
+
+        /** Sort first, so that the same duplicates are kept whatever the order of search */
+        Collections.sort(solutions);
+
+        /** Remove duplicates */
+        final ArrayList<Root> merged = RootClusters.merge(solutions, 1.5 / rd);
+        solutions.clear();
+        solutions.addAll(merged);
+    }
+
+    /**
+     * rounder.
+     *
+     * @param accuracyLevel the desired accuracyLevel
+     *
+     * @return the number to multiply a coordinate by before rounding it
+     */
+    private static double rounder(final SolverAccuracy accuracyLevel) {
+        if (accuracyLevel == SolverAccuracy.LOW) {
+            return SolverDefaults.ROUNDER_LOW;
+        } else if (accuracyLevel == SolverAccuracy.HIGH) {
+            return SolverDefaults.ROUNDER_HIGH;
         }
+        return SolverDefaults.ROUNDER_MED;
+    }
 
+    /**
+     * round.
+     *
+     * @param root the root to round
+     * @param rd   the rounder, see rounder()
+     *
+     * @return the root with rounded decimals
+     */
+    private static Root round(final Root root, final double rd) {
+        final double re = (double) Math.round(root.getValue().getRe() * rd) / rd;
+        final double im = (double) Math.round(root.getValue().getIm() * rd) / rd;
+        return new Root(new Complex(re, im), root.getMultiplicity(), root.getClusterSize(), root.isPart());
+    }
+
+    /**
+     * valuesOf.
+     *
+     * @param roots roots with their multiplicities
+     *
+     * @return just the values of the roots
+     */
+    private static ArrayList<Complex> valuesOf(final ArrayList<Root> roots) {
+        final ArrayList<Complex> values = new ArrayList<Complex>(roots.size());
+        for (Root root : roots) {
+            values.add(root.getValue());
+        }
+        return values;
     }
 
     /**
      * solve (automatic verison).
      *
-     * Starts with a range of AUTO_RANGE_START and adds AUTO_RANGE_INCREMENT until a
-     * root is found. If a root is found invokes solve() with current range.
-     * Terminates when AUTO_RANGE_MAX is reached and no roots were found.
+     * Picks the range with AutoRange.start() and invokes solve() with it. Finds
+     * no roots if AUTO_RANGE_MAX is reached and no roots were found.
      *
      * @param f_z           the function to solve
      * @param accuracyLevel the desired accuracyLevel
@@ -129,21 +461,38 @@ public class Solver {
      */
 
     public static ArrayList<Complex> solve(final String f_z, final SolverAccuracy accuracyLevel) {
-        int range = AUTO_RANGE_START;
-        while (true) {
-            Boolean isCurrentRangeValid = new Solver(range, accuracyLevel).checkWindingNumber(f_z);
-            if (isCurrentRangeValid) {
-                break;
-            } else if (!isCurrentRangeValid) {
-                if (range > AUTO_RANGE_MAX) {
-                    range = SolverDefaults.AUTO_RANGE_FAILED;
-                    break;
-                } else {
-                    range += AUTO_RANGE_INCREMENT;
-                }
-            }
+        try {
+            return valuesOf(Solver.solve(new CompiledComplexFunction(f_z), accuracyLevel, SolveOptions.DEFAULT)
+                    .getRoots());
+        } catch (CalculatorException e) {
+            return new ArrayList<Complex>();
         }
-        return Solver.solve(range, f_z, accuracyLevel);
+    }
+
+    /**
+     * solve (automatic compiled version).
+     *
+     * Same as solve(String, SolverAccuracy), but takes a function which has
+     * already been parsed and the options of the solve (see SolveOptions). With a
+     * pool, the candidate ranges are probed in parallel too. The budget's timeout
+     * counts from this call, but only the search of the range picked is limited
+     * by it.
+     *
+     * @param f_z           the compiled function to solve
+     * @param accuracyLevel the desired accuracyLevel
+     * @param options       the options of the solve
+     *
+     * @return the roots (and poles) found sorted by their values, marked as
+     *         partial if the budget ran out
+     */
+    public static SolveResult solve(final CompiledComplexFunction f_z, final SolverAccuracy accuracyLevel,
+            final SolveOptions options) {
+        final BudgetTracker tracker = new BudgetTracker(options.getBudget());
+        final Solver start = AutoRange.start(f_z, accuracyLevel, configOf(options), options.getPool());
+        if (start == null) {
+            return new SolveResult(new ArrayList<Root>(), tracker);
+        }
+        return Solver.search(start, f_z, options, tracker);
     }
 
     /**
@@ -158,12 +507,28 @@ public class Solver {
      * @param accuracyLevel the desired accuracy level
      */
     public Solver(Complex a, Complex b, Complex c, Complex d, final SolverAccuracy accuracyLevel) {
+        this(a, b, c, d, accuracyLevel, defaultConfig);
+    }
+
+    /**
+     * Square constructor (configured version).
+     *
+     * @param a             the bottom-left point A
+     * @param b             the bottom-right point B
+     * @param c             the top-right point C
+     * @param d             the top-left point D
+     * @param accuracyLevel the desired accuracy level
+     * @param config        the values to calibrate the solver with
+     */
+    private Solver(Complex a, Complex b, Complex c, Complex d, final SolverAccuracy accuracyLevel,
+            final SolverConfig config) {
 
         A = a;
         B = b;
         C = c;
         D = d;
         this.accuracyLevel = accuracyLevel;
+        this.config = config;
 
         /** Calculate mid-points based on given points */
         AB_mid = new Complex((B.getRe() + A.getRe()) / 2, A.getIm());
@@ -186,13 +551,15 @@ public class Solver {
      *
      * @param range         half of the rectangle's sidelenght.
      * @param accuracyLevel the desired accuracy level.
+     * @param config        the values to calibrate the solver with.
      */
-    private Solver(int range, final SolverAccuracy accuracyLevel) {
+    private Solver(int range, final SolverAccuracy accuracyLevel, final SolverConfig config) {
         A = new Complex(-range, -range);
         B = new Complex(range, -range);
         C = new Complex(range, range);
         D = new Complex(-range, range);
         this.accuracyLevel = accuracyLevel;
+        this.config = config;
 
         /** Calculate mid-points based on given points */
         AB_mid = new Complex((B.getRe() + A.getRe()) / 2, A.getIm());
@@ -225,7 +592,7 @@ public class Solver {
          * this means that Re+ axis was crossed NEGATIVELY, hence substract 2PI from
          * deltaPhi (1.8PI - 2PI = -0.2PI, correct phase change)
          */
-        if (deltaPhi > MAX_LEGAL_DELTAPHI_RATIO * Math.PI) {
+        if (deltaPhi > this.config.getMaxLegalDeltaphiRatio() * Math.PI) {
             deltaPhi -= 2 * Math.PI;
         }
         /**
@@ -233,7 +600,7 @@ public class Solver {
          * this means that Re+ axis was crossed POSITIVELY, hence add 2PI to deltaPhi
          * (-1.8PI +2PI = 0.2PI, correct phase change).
          */
-        else if (deltaPhi < -MAX_LEGAL_DELTAPHI_RATIO * Math.PI) {
+        else if (deltaPhi < -this.config.getMaxLegalDeltaphiRatio() * Math.PI) {
             deltaPhi += 2 * Math.PI;
         }
         return deltaPhi;
@@ -245,104 +612,445 @@ public class Solver {
      * Check winding number in relation to function f_z.
      *
      * @return Bool: winding number close or greater than 1
-     *
-     * @Author Piotr Machura, Kacper Ledwosiński
      */
     public Boolean checkWindingNumber(final String f_z) {
+        try {
+            return this.checkWindingNumber(new CompiledComplexFunction(f_z));
+        } catch (CalculatorException e) {
+            return false;
+        }
+    }
 
-        /** Step of "integration" - STEPS_PER_SIDELENGTH steps per side length */
-        final double step = Math.sqrt(this.area) / STEPS_PER_SIDELENGTH;
-        double windingNumber = 0;
+    /**
+     * checkWindingNumber.
+     *
+     * Check winding number in relation to the compiled function f_z.
+     *
+     * @return Bool: winding number close or greater than 1
+     */
+    public Boolean checkWindingNumber(final CompiledComplexFunction f_z) {
+        return Math.abs(this.windingNumber(f_z)) > this.config.getMinLegalWindingNumberRatio();
+    }
 
-        /** Starting point: A */
-        double x = A.getRe();
-        double y = A.getIm();
-        /* Phase prior to step (to be remembered) */
-        double prevPhi = 0;
+    /**
+     * countZerosMinusPoles.
+     *
+     * Argument principle: the winding number of f_z along the square's boundary is
+     * the number of zeros minus the number of poles inside, each counted with its
+     * multiplicity.
+     *
+     * @param f_z the function
+     *
+     * @return the winding number rounded to the nearest integer (0 if f_z is not a
+     *         valid function)
+     */
+    public int countZerosMinusPoles(final String f_z) {
         try {
-            prevPhi = Complex.phase(Parser.eval(f_z, new Variable("z", new Complex(x, y))).getComplexValue());
+            return this.countZerosMinusPoles(new CompiledComplexFunction(f_z));
         } catch (CalculatorException e) {
-            prevPhi = 0;
-            /** Strating in zero - might as well consider phase to be zero. */
+            return 0;
         }
+    }
 
-        /** Path A->B (going right) */
-        while (x < B.getRe()) {
-            try {
-                /** Go a step forward */
-                x += step;
-                /** Calculate phase after taking a step */
-                double nextPhi = Complex
-                        .phase(Parser.eval(f_z, new Variable("z", new Complex(x, y))).getComplexValue());
-                windingNumber += deltaPhi(prevPhi, nextPhi);
-                prevPhi = nextPhi;
-            } catch (Exception e) {
-                /**
-                 * This means a zero was encountered and phase cannot be calculated. If moving a
-                 * step forward won't go outisde boundary then move, if it will go outisde
-                 * boundary (which means you are at a corner) then proceed to checking next
-                 * side.
-                 */
-                if (x + step < B.getRe()) {
-                    x += step;
-                } else {
-                    break;
-                }
-            }
+    /**
+     * countZerosMinusPoles.
+     *
+     * @param f_z the compiled function
+     *
+     * @return zeros minus poles of f_z inside the square, see
+     *         countZerosMinusPoles(String)
+     */
+    public int countZerosMinusPoles(final CompiledComplexFunction f_z) {
+        return (int) Math.round(this.windingNumber(f_z));
+    }
+
+    /**
+     * getCorners.
+     *
+     * @return the corners of the square, starting bottom left counterclockwise
+     */
+    public Complex[] getCorners() {
+        return new Complex[] { A, B, C, D };
+    }
 
+    /**
+     * windingNumber.
+     *
+     * Walks the square's boundary counterclockwise and sums the phase changes of
+     * f_z.
+     *
+     * @param f_z the compiled function
+     *
+     * @return the winding number (total phase change divided by 2PI), not rounded
+     *
+     * @Author Piotr Machura, Kacper Ledwosiński
+     */
+    double windingNumber(final CompiledComplexFunction f_z) {
+        final Contour[] contour = { this.contour() };
+        ContourBatches.sampleAdaptively(f_z, new Solver[] { this }, contour, 1);
+        return this.windingNumberOf(f_z, contour[0]);
+    }
+
+    /**
+     * contour.
+     *
+     * Walks the path A->B->C->D->A and remembers every sample (as a number of the
+     * smallest steps from A, 0 to 4n), so that f_z can be evaluated at all of them
+     * in a single batch. With fixed stepping every smallest step is taken, an
+     * adaptive walk starts from A alone (see ContourBatches.walk()).
+     *
+     * @return the contour of the square, with all of its samples still to be
+     *         evaluated
+     */
+    Contour contour() {
+        /** Step of "integration" - at most STEPS_PER_SIDELENGTH steps per side length */
+        final int n = this.config.getStepsPerSidelength();
+        final int steps = this.config.isAdaptiveStepping() ? 0 : 4 * n;
+        final long[] t = new long[steps + 1];
+        for (int k = 0; k <= steps; k++) {
+            t[k] = k;
+        }
+        final Contour contour = new Contour(n, t, t.length);
+        contour.unsampled = Contour.allOf(contour.size);
+        return contour;
+    }
+
+    /**
+     * windingNumberOf.
+     *
+     * @param f_z     the compiled function
+     * @param contour the evaluated contour of the square
+     *
+     * @return the winding number along the contour, not rounded (NaN if the walk
+     *         around it was stopped, see ContourBatches.walk())
+     */
+    double windingNumberOf(final CompiledComplexFunction f_z, final Contour contour) {
+        if (contour.unsampled.length > 0) {
+            return Double.NaN;
         }
+        final double[] valueRe = contour.valueRe;
+        final double[] valueIm = contour.valueIm;
 
-        /** Path B->C (going up) */
-        while (y < C.getIm()) {
-            try {
-                y += step;
-                double nextPhi = Complex
-                        .phase(Parser.eval(f_z, new Variable("z", new Complex(x, y))).getComplexValue());
-                windingNumber += deltaPhi(prevPhi, nextPhi);
-                prevPhi = nextPhi;
-            } catch (Exception e) {
-                if (y + step < C.getIm()) {
-                    y += step;
+        if (this.config.getWindingKernel() == WindingKernel.QUADRANT) {
+            return quadrantWindingNumber(f_z, contour, valueRe, valueIm, this.shortestStep());
+        }
+        double windingNumber = 0;
+        /* Phase prior to step (to be remembered) */
+        double prevPhi = phaseOf(valueRe[0], valueIm[0]);
+        if (Double.isNaN(prevPhi)) {
+            /** Strating in zero - might as well consider phase to be zero. */
+            prevPhi = 0;
+        }
+        int prev = Double.isNaN(phaseOf(valueRe[0], valueIm[0])) ? -1 : 0;
+        int k = 1;
+        for (int side = 0; side < 4; side++) {
+            final int last = contour.sideEnd[side];
+            while (k <= last) {
+                double nextPhi = phaseOf(valueRe[k], valueIm[k]);
+                if (Double.isNaN(nextPhi)) {
+                    /**
+                     * This means a zero (or a pole) was encountered and phase cannot be
+                     * calculated. Skip the next sample too if it is still on this side and a
+                     * smallest step away (not the end of a long adaptive step), otherwise
+                     * proceed to checking it.
+                     */
+                    k = (k < last && contour.t[k + 1] - contour.t[k] == 1) ? k + 2 : k + 1;
                 } else {
-                    break;
+                    if (prev == k - 1) {
+                        windingNumber += phaseChange(f_z, contour.re[prev], contour.im[prev], valueRe[prev],
+                                valueIm[prev], contour.re[k], contour.im[k], valueRe[k], valueIm[k],
+                                this.shortestStep(),
+                                nextToMinimum(contour, prev));
+                    } else {
+                        windingNumber += deltaPhi(prevPhi, nextPhi);
+                    }
+                    prevPhi = nextPhi;
+                    prev = k;
+                    k++;
                 }
             }
         }
+        return windingNumber / (2 * Math.PI);
+    }
 
-        /** Path C->D (going left) */
-        while (x > D.getRe()) {
-            try {
-                x -= step;
-                double nextPhi = Complex
-                        .phase(Parser.eval(f_z, new Variable("z", new Complex(x, y))).getComplexValue());
-                windingNumber += deltaPhi(prevPhi, nextPhi);
-                prevPhi = nextPhi;
-            } catch (Exception e) {
-                if (x - step > D.getRe()) {
-                    x -= step;
-                } else {
-                    break;
-                }
+    /**
+     * phaseChange.
+     *
+     * Phase change of f along a step of the contour. A step over which f changes
+     * by less than its modulus turns f by less than a third of a full turn, so
+     * the phase change is taken the shorter way around 0. A step over which it
+     * changes by more, as it does next to a root lying close to the contour, is
+     * bisected until every part of it is small or shorter than half the distance
+     * of the contour from the lines of the grid (see shortestStep()). No part this
+     * short is large next to a root lying on them. So is a small step next to a
+     * minimum of Abs(f) (see nextToMinimum()) and a small part next to a large
+     * one. A part which is still large crosses a discontinuity (ex. a branch cut
+     * of ln), its phase change is taken the usual way (see deltaPhi()). The test
+     * is symmetric, so walking from b to a gives exactly the opposite phase
+     * change.
+     *
+     * @param f_z      the function
+     * @param aRe      real part of the first point
+     * @param aIm      imaginary part of the first point
+     * @param faRe     Re f at the first point
+     * @param faIm     Im f at the first point
+     * @param bRe      real part of the second point
+     * @param bIm      imaginary part of the second point
+     * @param fbRe     Re f at the second point
+     * @param fbIm     Im f at the second point
+     * @param shortest the shortest part to bisect
+     * @param bisect   true if the step has to be bisected even if it is small
+     *
+     * @return the phase change of f on the way from a to b
+     */
+    private double phaseChange(final CompiledComplexFunction f_z, final double aRe, final double aIm,
+            final double faRe, final double faIm, final double bRe, final double bIm, final double fbRe,
+            final double fbIm, final double shortest, final boolean bisect) {
+        final double dRe = bRe - aRe;
+        final double dIm = bIm - aIm;
+        final boolean large = isLargeChange(faRe, faIm, fbRe, fbIm);
+        if ((large || bisect) && dRe * dRe + dIm * dIm > shortest * shortest && this.mayBisect()) {
+            final double mRe = (aRe + bRe) / 2;
+            final double mIm = (aIm + bIm) / 2;
+            final double[] fm = new double[2];
+            f_z.evaluate(mRe, mIm, fm);
+            if (!Double.isNaN(phaseOf(fm[0], fm[1]))) {
+                /** Each half is next to the other one */
+                final boolean first = isLargeChange(faRe, faIm, fm[0], fm[1]);
+                final boolean second = isLargeChange(fm[0], fm[1], fbRe, fbIm);
+                return phaseChange(f_z, aRe, aIm, faRe, faIm, mRe, mIm, fm[0], fm[1], shortest, second)
+                        + phaseChange(f_z, mRe, mIm, fm[0], fm[1], bRe, bIm, fbRe, fbIm, shortest, first);
             }
         }
+        if (large) {
+            return deltaPhi(phaseOf(faRe, faIm), phaseOf(fbRe, fbIm));
+        }
+        /** A small change - the shorter way around 0 */
+        return Math.atan2(faRe * fbIm - faIm * fbRe, faRe * fbRe + faIm * fbIm);
+    }
 
-        /** Path D->A (going down) */
-        while (y > A.getIm()) {
-            try {
-                y -= step;
-                double nextPhi = Complex
-                        .phase(Parser.eval(f_z, new Variable("z", new Complex(x, y))).getComplexValue());
-                windingNumber += deltaPhi(prevPhi, nextPhi);
-                prevPhi = nextPhi;
-            } catch (Exception e) {
-                if (y - step > A.getIm()) {
-                    y -= step;
-                } else {
-                    break;
-                }
+    /**
+     * quadrantWindingNumber.
+     *
+     * Counts how many times f crosses an axis along the contour: +1 for every
+     * counterclockwise move to the next quadrant and -1 for every clockwise move.
+     * Four crossings make one full turn. When f jumps to the opposite quadrant
+     * between two samples (or changes by more than its modulus, as it does next
+     * to a root) the step in between is bisected to see which way it went, down
+     * to shortestStep(). So is a step next to a minimum of Abs(f), see
+     * nextToMinimum(). No phase has to be computed. The samples are moved off the
+     * grid lines (see contourShift()), so f is never 0 at them.
+     *
+     * @param f_z      the function
+     * @param contour  the samples
+     * @param valueRe  Re f at the samples
+     * @param valueIm  Im f at the samples
+     * @param shortest the shortest step to bisect
+     *
+     * @return the winding number (always an integer)
+     */
+    private double quadrantWindingNumber(final CompiledComplexFunction f_z, final Contour contour,
+            final double[] valueRe, final double[] valueIm, final double shortest) {
+        long crossings = 0;
+        int first = -1;
+        int prev = -1;
+        for (int k = 0; k < contour.size; k++) {
+            if (quadrant(valueRe[k], valueIm[k]) < 0) {
+                /** Undefined (a pole) - skip it */
+                continue;
             }
+            if (prev < 0) {
+                first = k;
+            } else {
+                crossings += crossings(f_z, contour.re[prev], contour.im[prev], valueRe[prev], valueIm[prev],
+                        contour.re[k], contour.im[k], valueRe[k], valueIm[k],
+                        k == prev + 1 ? shortest : Double.POSITIVE_INFINITY,
+                        k == prev + 1 && nextToMinimum(contour, prev));
+            }
+            prev = k;
+        }
+        if (first > 0) {
+            /**
+             * The contour started in a skipped sample, so close it explicitly (this is not
+             * a step of the contour, so it is not bisected)
+             */
+            crossings += crossings(f_z, contour.re[prev], contour.im[prev], valueRe[prev], valueIm[prev],
+                    contour.re[first], contour.im[first], valueRe[first], valueIm[first],
+                    Double.POSITIVE_INFINITY, false);
+        }
+        return crossings / 4d;
+    }
+
+    /**
+     * crossings.
+     *
+     * @param f_z      the function
+     * @param aRe      real part of the first point
+     * @param aIm      imaginary part of the first point
+     * @param faRe     Re f at the first point
+     * @param faIm     Im f at the first point
+     * @param bRe      real part of the second point
+     * @param bIm      imaginary part of the second point
+     * @param fbRe     Re f at the second point
+     * @param fbIm     Im f at the second point
+     * @param shortest the shortest segment to bisect
+     * @param bisect   true if the segment has to be bisected even if f changes
+     *                 little over it
+     *
+     * @return signed number of axes crossed by f on the way from a to b
+     */
+    private long crossings(final CompiledComplexFunction f_z, final double aRe, final double aIm,
+            final double faRe, final double faIm, final double bRe, final double bIm, final double fbRe,
+            final double fbIm, final double shortest, final boolean bisect) {
+        final int turn = (quadrant(fbRe, fbIm) - quadrant(faRe, faIm)) & 3;
+        /**
+         * Opposite quadrants, or a change too big to tell how f went around 0 (ex. past
+         * two close roots within a step) - look at the middle of the segment. The test
+         * is symmetric, so walking from b to a gives exactly the opposite count.
+         */
+        final double dRe = bRe - aRe;
+        final double dIm = bIm - aIm;
+        if (dRe * dRe + dIm * dIm > shortest * shortest
+                && (turn == 2 || bisect || isLargeChange(faRe, faIm, fbRe, fbIm)) && this.mayBisect()) {
+            final double mRe = (aRe + bRe) / 2;
+            final double mIm = (aIm + bIm) / 2;
+            final double[] fm = new double[2];
+            f_z.evaluate(mRe, mIm, fm);
+            if (quadrant(fm[0], fm[1]) >= 0) {
+                /** Each half is next to the other one */
+                final boolean first = isLargeChange(faRe, faIm, fm[0], fm[1]);
+                final boolean second = isLargeChange(fm[0], fm[1], fbRe, fbIm);
+                return crossings(f_z, aRe, aIm, faRe, faIm, mRe, mIm, fm[0], fm[1], shortest, second)
+                        + crossings(f_z, mRe, mIm, fm[0], fm[1], bRe, bIm, fbRe, fbIm, shortest, first);
+            }
+        }
+        if (turn == 1) {
+            return 1;
+        } else if (turn == 3) {
+            return -1;
+        } else if (turn == 0) {
+            return 0;
+        }
+        /** Cannot refine any further - take the shorter way around */
+        final double cross = faRe * fbIm - faIm * fbRe;
+        if (cross != 0) {
+            return cross > 0 ? 2 : -2;
+        }
+        /**
+         * f went straight through 0 - pick a way which is reversed when walking from b
+         * to a, so that the squares on both sides of the segment agree.
+         */
+        return (aRe < bRe || (aRe == bRe && aIm < bIm)) ? 2 : -2;
+    }
+
+    /**
+     * mayBisect.
+     *
+     * Counts the evaluation of f at the middle of a step which a winding kernel
+     * is about to bisect.
+     *
+     * @return true if the step may be bisected, false if the solve was interrupted
+     *         or its budget ran out (the step is then taken as it is)
+     */
+    private boolean mayBisect() {
+        if (this.budget == null) {
+            return true;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            this.budget.cancel();
+        }
+        if (this.budget.isExhausted()) {
+            return false;
+        }
+        this.budget.count(1);
+        return true;
+    }
+
+    /**
+     * isLargeChange.
+     *
+     * @return true if f changes between values a and b by at least the smaller of
+     *         their moduli
+     */
+    static boolean isLargeChange(final double aRe, final double aIm, final double bRe,
+            final double bIm) {
+        final double dRe = bRe - aRe;
+        final double dIm = bIm - aIm;
+        return dRe * dRe + dIm * dIm >= Math.min(aRe * aRe + aIm * aIm, bRe * bRe + bIm * bIm);
+    }
+
+    /**
+     * nextToMinimum.
+     *
+     * A multiple root (or a few roots close together) lying near the middle of a
+     * step, close to the contour, turns f a whole time around 0 (or more) over the
+     * step, while f has about the same value at both of its ends. Abs(f) is
+     * smallest around there, though.
+     *
+     * @param contour the evaluated contour
+     * @param k       the first sample of the step
+     *
+     * @return true if Abs(f) at sample k or k + 1 is not bigger than at the samples
+     *         next to it on the same side of the contour
+     */
+    private static boolean nextToMinimum(final Contour contour, final int k) {
+        final double a = modulusSquared(contour, k);
+        final double b = modulusSquared(contour, k + 1);
+        return (a <= b && (contour.t[k] % contour.n == 0 || a <= modulusSquared(contour, k - 1)))
+                || (b <= a && (contour.t[k + 1] % contour.n == 0 || k + 2 == contour.size
+                        || b <= modulusSquared(contour, k + 2)));
+    }
+
+    /**
+     * modulusSquared.
+     *
+     * @param contour the evaluated contour
+     * @param k       a sample
+     *
+     * @return Abs(f) squared at the sample
+     */
+    private static double modulusSquared(final Contour contour, final int k) {
+        return contour.valueRe[k] * contour.valueRe[k] + contour.valueIm[k] * contour.valueIm[k];
+    }
+
+    /**
+     * quadrant.
+     *
+     * @param re real part of a value of the function
+     * @param im imaginary part of a value of the function
+     *
+     * @return quadrant (0 to 3 counterclockwise) of re + im*i + epsilon, where
+     *         epsilon is an infinitely small positive number, or -1 if it is
+     *         undefined
+     */
+    private static int quadrant(final double re, final double im) {
+        /**
+         * Samples are moved off the grid lines, so f is 0 at one of them only by
+         * accident. Shifting f by epsilon then still gives the same quadrant to every
+         * square sharing that sample.
+         */
+        if (re >= 0 && im >= 0) {
+            return 0;
+        } else if (re < 0 && im > 0) {
+            return 1;
+        } else if (re < 0 && im <= 0) {
+            return 2;
+        } else if (re >= 0 && im < 0) {
+            return 3;
         }
-        return Math.abs(windingNumber) > MIN_LEGAL_WINDING_NUMBER_RATIO * 2 * Math.PI;
+        return -1;
+    }
+
+    /**
+     * phaseOf.
+     *
+     * @param re real part of a value of the function
+     * @param im imaginary part of a value of the function
+     *
+     * @return Complex.phase() of re + im*i or NaN if it is undefined
+     */
+    private static double phaseOf(final double re, final double im) {
+        return Complex.phaseOrNaN(re, im);
     }
 
     /**
@@ -354,91 +1062,554 @@ public class Solver {
      */
     private Solver[] getChildren() {
         Solver[] children = new Solver[4];
-        children[0] = new Solver(A, AB_mid, MIDDLE, AD_mid, accuracyLevel);
-        children[1] = new Solver(AB_mid, B, BC_mid, MIDDLE, accuracyLevel);
-        children[2] = new Solver(MIDDLE, BC_mid, C, CD_mid, accuracyLevel);
-        children[3] = new Solver(AD_mid, MIDDLE, CD_mid, D, accuracyLevel);
+        children[0] = new Solver(A, AB_mid, MIDDLE, AD_mid, accuracyLevel, config);
+        children[1] = new Solver(AB_mid, B, BC_mid, MIDDLE, accuracyLevel, config);
+        children[2] = new Solver(MIDDLE, BC_mid, C, CD_mid, accuracyLevel, config);
+        children[3] = new Solver(AD_mid, MIDDLE, CD_mid, D, accuracyLevel, config);
+        /** Position of the children on the grid of the next level */
+        for (int i = 0; i < children.length; i++) {
+            children[i].level = this.level + 1;
+            children[i].x = 2 * this.x + (i == 1 || i == 2 ? 1 : 0);
+            children[i].y = 2 * this.y + (i >= 2 ? 1 : 0);
+            children[i].samples = this.samples;
+            children[i].poles = this.poles;
+            children[i].budget = this.budget;
+            children[i].listener = this.listener;
+        }
         return children;
     }
 
     /**
      * solveInside.
      *
-     * Recursively check square's winding number, splitting it into 4 children if
-     * it's big and viable and discarding it if it's not viable. If it's small and
-     * viable, add its middle to solutions.
+     * Examine the square and all of its descendants which are still viable. The
+     * squares waiting to be examined are kept in a Frontier and taken depth first
+     * in Morton (Z) order, so only the square being examined exists as an object.
      *
      * @param f_z       the function to solve for
-     * @param solutions the arraylist to put solutions in
+     * @param solutions the collection to put solutions in
      *
      * @Author Piotr Machura, Kacper Ledwosiński
      */
-    private void solveInside(final String f_z, ArrayList<Complex> solutions) {
+    private void solveInside(final CompiledComplexFunction f_z, Collection<Root> solutions) {
+        final Frontier frontier = new Frontier();
+        frontier.push(Frontier.ROOT, this.winding);
+        while (frontier.size > 0) {
+            frontier.size--;
+            final long cell = frontier.cells[frontier.size];
+            final Solver square = cell == Frontier.ROOT ? this : this.descendant(cell);
+            square.winding = frontier.windings[frontier.size];
+            if (!square.withinBudget()) {
+                continue;
+            }
+            final Solver[] children = square.examine(f_z, solutions);
+            /** Push the children backwards, so that they are taken in Morton order */
+            for (int quadrant = 3; quadrant >= 0; quadrant--) {
+                for (Solver child : children) {
+                    if ((child.y - 2 * square.y) * 2 + (child.x - 2 * square.x) != quadrant) {
+                        continue;
+                    }
+                    if (Frontier.levelOf(cell) < Frontier.MAX_LEVEL) {
+                        frontier.push(cell << 2 | quadrant, child.winding);
+                    } else {
+                        /** Too deep for this frontier - start a new one below */
+                        child.solveInside(f_z, solutions);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * descendant.
+     *
+     * @param cell a cell of a Frontier started from this square
+     *
+     * @return the square of that cell, sharing the samples, poles, budget and
+     *         listener of this square
+     */
+    private Solver descendant(final long cell) {
+        return this.descendant(Frontier.levelOf(cell), Frontier.xOf(cell), Frontier.yOf(cell));
+    }
+
+    /**
+     * initialGridLevel.
+     *
+     * Chooses how many times to split the starting square before solving. A
+     * function which may have poles is split into at least initialGridSize x
+     * initialGridSize squares, so that its roots and poles do not cancel each
+     * other out, while an entire function has no poles and may start from the
+     * whole square. The grid is then made finer as long as f turns too fast for
+     * the first steps of the contours, otherwise whole turns of f between two
+     * samples could go unnoticed: |f'/f| at every corner of the grid times the
+     * initial step has to stay below INITIAL_GRID_MAX_TURN_RATIO * PI. Close to a
+     * root or a pole f turns fast too, but only around it, which the contours
+     * handle by halving their steps - so a corner is let through if a Newton step
+     * from it lands at (or right next to) one.
+     *
+     * @param f_z the function to solve for
+     *
+     * @return the level of the squares to start from
+     */
+    private int initialGridLevel(final CompiledComplexFunction f_z) {
+        final int fixed = Integer.numberOfTrailingZeros(this.config.getInitialGridSize());
+        if (!this.config.isAdaptiveInitialGrid()) {
+            return fixed;
+        }
+        final int max = Math.max(fixed, Integer.numberOfTrailingZeros(SolverDefaults.MAX_INITIAL_GRID_SIZE));
+        final int n = this.config.getStepsPerSidelength();
+        final int steps = this.config.isAdaptiveStepping() ? Math.min(SolverDefaults.ADAPTIVE_INITIAL_STEPS, n) : n;
+        int gridLevel = f_z.isEntire() ? 0 : fixed;
+        while (gridLevel < max && !this.budget.isExhausted()) {
+            final int lines = (1 << gridLevel) + 1;
+            final double sidelength = Math.scalb(B.getRe() - A.getRe(), -gridLevel);
+            final double maxRate = SolverDefaults.INITIAL_GRID_MAX_TURN_RATIO * Math.PI * steps / sidelength;
+            boolean calm = true;
+            for (int row = 0; row < lines && calm; row++) {
+                for (int column = 0; column < lines && calm; column++) {
+                    calm = this.isCalm(f_z, new Complex(A.getRe() + column * sidelength,
+                            A.getIm() + row * sidelength), maxRate);
+                }
+            }
+            if (calm) {
+                break;
+            }
+            gridLevel++;
+        }
+        return gridLevel;
+    }
+
+    /**
+     * isCalm.
+     *
+     * @param f_z     the function to solve for
+     * @param z       a corner of the initial grid
+     * @param maxRate the largest legal |f'/f|
+     *
+     * @return true if f does not turn faster than maxRate at z, or it does only
+     *         because z is close to a root or a pole (NaN, where f is undefined or
+     *         0, tells nothing)
+     */
+    private boolean isCalm(final CompiledComplexFunction f_z, final Complex z, final double maxRate) {
+        final double[] valueAndDerivative = new double[4];
+        f_z.evaluateWithDerivative(z.getRe(), z.getIm(), valueAndDerivative);
+        this.budget.count(1);
+        final Complex value = new Complex(valueAndDerivative[0], valueAndDerivative[1]);
+        final Complex step = Complex.divOrNaN(value, new Complex(valueAndDerivative[2], valueAndDerivative[3]));
+        if (!(Complex.abs(step) * maxRate < 1)) {
+            return true;
+        }
+        /** Newton steps towards a root and away from a pole (see newton()) */
+        final double[] root = new double[2];
+        final double[] pole = new double[2];
+        f_z.evaluate(z.getRe() - step.getRe(), z.getIm() - step.getIm(), root);
+        f_z.evaluate(z.getRe() + step.getRe(), z.getIm() + step.getIm(), pole);
+        this.budget.count(2);
+        final double abs = Complex.abs(value);
+        return Complex.abs(new Complex(root[0], root[1])) < SolverDefaults.INITIAL_GRID_ROOT_RATIO * abs
+                || !(Complex.abs(new Complex(pole[0], pole[1])) * SolverDefaults.INITIAL_GRID_ROOT_RATIO < abs);
+    }
+
+    /**
+     * grid.
+     *
+     * @param depth number of times to split the square
+     *
+     * @return the squares of the square split depth times, row by row starting
+     *         from the bottom left one
+     */
+    private Solver[] grid(final int depth) {
+        final int side = 1 << depth;
+        final Solver[] grid = new Solver[side * side];
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                grid[row * side + column] = this.descendant(depth, column, row);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * descendant.
+     *
+     * @param depth number of times this square is split
+     * @param cellX column of the descendant (from the left)
+     * @param cellY row of the descendant (from the bottom)
+     *
+     * @return the descendant, sharing the samples, poles, budget and listener of
+     *         this square
+     */
+    private Solver descendant(final int depth, final long cellX, final long cellY) {
+        /** Scaling by a power of 2 is exact, so neighbours share their corners */
+        final double width = Math.scalb(B.getRe() - A.getRe(), -depth);
+        final double height = Math.scalb(D.getIm() - A.getIm(), -depth);
+        final double left = A.getRe() + cellX * width;
+        final double bottom = A.getIm() + cellY * height;
+        final double right = A.getRe() + (cellX + 1) * width;
+        final double top = A.getIm() + (cellY + 1) * height;
+        final Solver square = new Solver(new Complex(left, bottom), new Complex(right, bottom),
+                new Complex(right, top), new Complex(left, top), accuracyLevel, config);
+        square.level = this.level + depth;
+        square.x = (this.x << depth) + cellX;
+        square.y = (this.y << depth) + cellY;
+        square.samples = this.samples;
+        square.poles = this.poles;
+        square.budget = this.budget;
+        square.listener = this.listener;
+        return square;
+    }
+
+    /**
+     * withinBudget.
+     *
+     * @return true if the square may be examined, false if the solve was
+     *         interrupted or its budget ran out (the square is then recorded as
+     *         unresolved)
+     */
+    boolean withinBudget() {
         if (Thread.currentThread().isInterrupted()) {
-            return;
+            this.budget.cancel();
         }
-        if (this.checkWindingNumber(f_z)) {
+        return this.budget.allows(this);
+    }
+
+    /**
+     * examine.
+     *
+     * Check square's winding number, splitting it into 4 children if it's big and
+     * viable and discarding it if it's not viable. If it's small and viable, add
+     * its middle to solutions. A square winding exactly once around 0 holds a
+     * single simple root, which is found with newton() instead of further
+     * splitting. The same goes for a square holding a single multiple root, whose
+     * multiplicity is the winding number. A negative winding number means there
+     * are more poles than zeros inside, but not that there are no zeros - a zero
+     * and a pole cancel each other out in the count, so such a square is split
+     * like any other. Only the smallest legal square is known to hold nothing but
+     * a pole, which is added to the poles if they are looked for.
+     *
+     * @param f_z       the function to solve for
+     * @param solutions the collection to put solutions in
+     *
+     * @return the children which still have to be examined (possibly none)
+     */
+    Solver[] examine(final CompiledComplexFunction f_z, Collection<Root> solutions) {
+        final double windingNumber = Double.isNaN(this.winding) ? this.windingNumber(f_z) : this.winding;
+        if (this.isStopped(windingNumber)) {
+            /** Record the square as unresolved */
+            this.withinBudget();
+            return NO_CHILDREN;
+        }
+        final boolean integral = this.isIntegral(windingNumber);
+        final long count = Math.round(windingNumber);
+        if (integral && count < 0) {
+            if (this.area > this.MIN_LEGAL_AREA) {
+                return this.viableChildren(f_z, windingNumber);
+            }
+            if (this.poles != null) {
+                final Complex pole = this.newton(f_z, count);
+                this.poles.add(new Root(pole != null ? pole : this.center(), (int) -count));
+            }
+            return NO_CHILDREN;
+        }
+        if (Math.abs(windingNumber) > this.config.getMinLegalWindingNumberRatio()) {
             if (this.area <= this.MIN_LEGAL_AREA) {
-                /**
-                 * Add MIDDLE to solutions if Abs(f_z(MIDDLE)) is small. This needs to be
-                 * checked because this algorithm will detect both roots AND poles of a
-                 * function.
-                 */
-                try {
-                    double absOfRoot = Complex.abs(Parser.eval(f_z, new Variable("z", this.MIDDLE)).getComplexValue());
-                    if (absOfRoot < MAX_LEGAL_ABS_OF_ROOT) {
-                        solutions.add(this.MIDDLE);
+                /** Add the middle of the contour to solutions if it is close to a root */
+                if (this.isNearRoot(f_z, integral && count > 1 ? count : 1)) {
+                    this.found(solutions, new Root(this.center(), integral && count > 1 ? (int) count : 1));
+                }
+            } else {
+                if (count == 1 || (integral && count > 1)) {
+                    Complex root = this.newton(f_z, count);
+                    if (root != null && (count == 1 || this.isSinglePoint(f_z, root, count))) {
+                        this.found(solutions, new Root(root, (int) count, 1, count > 1 && this.isCutDown(root)));
+                        return NO_CHILDREN;
                     }
-                } catch (CalculatorException e) {
-                    /**
-                     * This means it's probably a pole too - do not add it and ignore.
-                     */
                 }
+                /** Newton failed (or the square is not that simple) - keep splitting */
+                return this.viableChildren(f_z, windingNumber);
+            }
+        }
+        return NO_CHILDREN;
+    }
+
+    /**
+     * isNearRoot.
+     *
+     * Checks if the middle of the contour of the smallest legal square (see
+     * center()) is close to a root: Abs(f_z) has to be small there and a Newton
+     * step from there must not be longer than the square's sidelength. Both need
+     * to be checked, because this algorithm will detect both roots AND poles of a
+     * function and a small value alone does not tell a root from a flat part of
+     * f_z.
+     *
+     * @param f_z   the function to solve for
+     * @param order multiplicity of the root looked for
+     *
+     * @return true if the middle can be accepted as a root
+     */
+    private boolean isNearRoot(final CompiledComplexFunction f_z, final long order) {
+        final double[] valueAndDerivative = new double[4];
+        final Complex center = this.center();
+        f_z.evaluateWithDerivative(center.getRe(), center.getIm(), valueAndDerivative);
+        this.budget.count(1);
+        final Complex value = new Complex(valueAndDerivative[0], valueAndDerivative[1]);
+        /**
+         * NaN means f is undefined there, so it's probably a pole too and the
+         * comparison fails.
+         */
+        if (!(Complex.abs(value) < this.config.getMaxLegalAbsOfRoot())) {
+            return false;
+        }
+        if (Complex.abs(value) == 0) {
+            return true;
+        }
+        final Complex step = Complex.divOrNaN(value, new Complex(valueAndDerivative[2], valueAndDerivative[3]));
+        /** A NaN step (f' is 0 or undefined) fails the comparison */
+        return order * Complex.abs(step) <= Math.sqrt(this.area);
+    }
+
+    /**
+     * found.
+     *
+     * Adds root to solutions and passes it (rounded) to the listener.
+     *
+     * @param solutions the collection to put solutions in
+     * @param root      the root which has just been confirmed
+     */
+    private void found(final Collection<Root> solutions, final Root root) {
+        solutions.add(root);
+        if (this.listener != null) {
+            this.listener.rootFound(round(root, rounder(this.accuracyLevel)));
+        }
+    }
+
+    /**
+     * viableChildren.
+     *
+     * Splits the square and finds winding numbers of its children. The square's
+     * winding number is the sum of its children's. An entire function has no
+     * poles (no negative winding numbers), so once the children computed so far
+     * account for the whole square the remaining ones are skipped. Once the
+     * first three children have integral winding numbers the last one's is the
+     * square's minus theirs (unless the config says otherwise) - except when that
+     * would give an entire function a pole, which means a sibling was miscounted
+     * (ex. cut through a multiple root), so it is computed instead.
+     * In a breadth-first search all children are returned as they are, their
+     * winding numbers are found together with the rest of the next level - the
+     * last child's is derived there (see BreadthFirstSearch.examineLevel()).
+     *
+     * @param f_z           the function to solve for
+     * @param windingNumber winding number of this square
+     *
+     * @return the children which are viable, with their winding numbers set
+     */
+    private Solver[] viableChildren(final CompiledComplexFunction f_z, final double windingNumber) {
+        final Solver[] children = this.getChildren();
+        final boolean derive = this.config.isDeriveLastChild();
+        boolean integral = this.isIntegral(windingNumber);
+        if (this.config.getSearchOrder() == SearchOrder.BREADTH_FIRST) {
+            if (derive && integral) {
+                children[children.length - 1].parentWinding = windingNumber;
+            }
+            return children;
+        }
+        final boolean entire = f_z.isEntire();
+        long remaining = Math.round(windingNumber);
+        int viable = 0;
+        for (int i = 0; i < children.length; i++) {
+            final Solver child = children[i];
+            if (integral && (entire && remaining == 0
+                    || derive && i == children.length - 1 && (remaining > 0 || !entire))) {
+                child.winding = remaining;
             } else {
-                Solver[] children = this.getChildren();
-                for (Solver child : children) {
-                    child.solveInside(f_z, solutions);
+                child.winding = child.windingNumber(f_z);
+                integral = integral && this.isIntegral(child.winding);
+                remaining -= Math.round(child.winding);
+            }
+            /** A child left unknown by the budget is kept, to be recorded as unresolved */
+            if (Math.abs(child.winding) > this.config.getMinLegalWindingNumberRatio()
+                    || child.isStopped(child.winding)) {
+                children[viable++] = child;
+            }
+        }
+        return Arrays.copyOf(children, viable);
+    }
+
+    /**
+     * isSinglePoint.
+     *
+     * Checks if all zeros (or poles) of the square are within the smallest legal
+     * square around root, which means they make up a single root of multiplicity
+     * count (or a pole of order -count) at the requested accuracy. The small
+     * square is cut down to this square, so that a root lying on its boundary
+     * (ex. a real root on the real axis) is split between the neighbours exactly
+     * the same way as it is by their winding numbers.
+     *
+     * @param f_z   the function to solve for
+     * @param root  a root (or pole) of f_z inside the square
+     * @param count zeros minus poles of the square
+     *
+     * @return true if the part of the smallest legal square around root which
+     *         lies inside this square has the same count
+     */
+    private boolean isSinglePoint(final CompiledComplexFunction f_z, final Complex root, final long count) {
+        final double half = Math.sqrt(this.MIN_LEGAL_AREA) / 2;
+        final double left = Math.max(root.getRe() - half, A.getRe());
+        final double right = Math.min(root.getRe() + half, B.getRe());
+        final double bottom = Math.max(root.getIm() - half, A.getIm());
+        final double top = Math.min(root.getIm() + half, D.getIm());
+        final Solver around = new Solver(new Complex(left, bottom), new Complex(right, bottom),
+                new Complex(right, top), new Complex(left, top), this.accuracyLevel, this.config);
+        around.budget = this.budget;
+        final double windingNumber = around.windingNumber(f_z);
+        return this.isIntegral(windingNumber) && Math.round(windingNumber) == count;
+    }
+
+    /**
+     * isCutDown.
+     *
+     * @param root a root of f_z inside the square
+     *
+     * @return true if the smallest legal square around root sticks out of this
+     *         square, so that isSinglePoint() counts only the part of the root
+     *         inside it
+     */
+    private boolean isCutDown(final Complex root) {
+        final double half = Math.sqrt(this.MIN_LEGAL_AREA) / 2;
+        return root.getRe() - half < A.getRe() || root.getRe() + half > B.getRe() || root.getIm() - half < A.getIm()
+                || root.getIm() + half > D.getIm();
+    }
+
+    /**
+     * isStopped.
+     *
+     * @param windingNumber winding number of the square
+     *
+     * @return true if it is unknown because the budget ran out while the contour
+     *         was walked (see ContourBatches.walk())
+     */
+    boolean isStopped(final double windingNumber) {
+        return Double.isNaN(windingNumber) && this.budget != null && this.budget.isExhausted();
+    }
+
+    /**
+     * isIntegral.
+     *
+     * @param windingNumber a winding number
+     *
+     * @return true if it is close enough to an integer to be trusted (it is not
+     *         when the contour crosses ex. a branch cut of ln)
+     */
+    boolean isIntegral(final double windingNumber) {
+        return Math.abs(windingNumber - Math.rint(windingNumber)) < 1 - this.config.getMinLegalWindingNumberRatio();
+    }
+
+    /**
+     * The class SolveTask.
+     *
+     * Examines squares as fork/join tasks. Every viable child of a big square
+     * becomes a task of its own, small squares are solved with solveInside() on
+     * the current worker.
+     */
+    private static final class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Solver[] squares;
+        private final CompiledComplexFunction f_z;
+        private final Collection<Root> solutions;
+        private final double sequentialArea;
+
+        SolveTask(final Solver[] squares, final CompiledComplexFunction f_z, final Collection<Root> solutions,
+                final double sequentialArea) {
+            this.squares = squares;
+            this.f_z = f_z;
+            this.solutions = solutions;
+            this.sequentialArea = sequentialArea;
+        }
+
+        @Override
+        protected void compute() {
+            if (squares.length > 1) {
+                SolveTask[] tasks = new SolveTask[squares.length];
+                for (int i = 0; i < squares.length; i++) {
+                    tasks[i] = new SolveTask(new Solver[] { squares[i] }, f_z, solutions, sequentialArea);
+                }
+                invokeAll(tasks);
+            } else if (squares.length == 1) {
+                final Solver square = squares[0];
+                if (square.area < sequentialArea) {
+                    square.solveInside(f_z, solutions);
+                } else if (square.withinBudget()) {
+                    Solver[] children = square.examine(f_z, solutions);
+                    if (children.length > 0) {
+                        new SolveTask(children, f_z, solutions, sequentialArea).compute();
+                    }
                 }
             }
         }
     }
 
     /**
-     * readConfig.
+     * newton.
      *
-     * Reads the config values from a .solverrc file to override SolverDefaults. The
-     * .solverrc file has to have exactly 8 fields with values in the same order as
-     * the ones found in SolverDefaults separated by a space.
+     * Newton's iteration z -> z - m*f(z)/f'(z) started from center(), with f'
+     * computed by automatic differentiation. For a root of multiplicity m this
+     * modified iteration converges just as fast as the plain one (m = 1) does for a
+     * simple root. The iteration has to stay inside the square, otherwise it might
+     * have jumped to a root which belongs to another square. A pole of order p is a
+     * root of multiplicity p of 1/f(z), for which the step is z -> z + p*f(z)/f'(z),
+     * so poles are found with m = -p.
      *
-     * Sample .solverrc with values the same as SolverDefaults:
+     * @param f_z   the function to solve for
+     * @param order multiplicity m of the root looked for (minus the order of a
+     *              pole)
      *
-     * 5 5 100 1.8 200 0.95 1
+     * @return the root or null if the iteration left the square, hit an undefined
+     *         point, did not converge in NEWTON_MAX_ITERATIONS steps or converged
+     *         to a point where Abs(f_z) is not small (large for a pole)
+     */
+    private Complex newton(final CompiledComplexFunction f_z, final long order) {
+        /** Stop well below the size of the smallest legal square */
+        final double tolerance = Math.sqrt(this.MIN_LEGAL_AREA) * SolverDefaults.NEWTON_TOLERANCE_RATIO;
+        final double[] valueAndDerivative = new double[4];
+        /** The square is where its contour is (see contourShift()) */
+        final double shift = this.contourShift();
+        final double shiftIm = shift * SolverDefaults.CONTOUR_SHIFT_SLOPE;
+        Complex z = this.center();
+        for (int i = 0; i < SolverDefaults.NEWTON_MAX_ITERATIONS; i++) {
+            f_z.evaluateWithDerivative(z.getRe(), z.getIm(), valueAndDerivative);
+            this.budget.count(1);
+            /** f or f' undefined (or f' is 0) gives a NaN step */
+            Complex step = Complex.mul(new Complex(order, 0),
+                    Complex.divOrNaN(new Complex(valueAndDerivative[0], valueAndDerivative[1]),
+                            new Complex(valueAndDerivative[2], valueAndDerivative[3])));
+            z = Complex.sub(z, step);
+            if (Double.isNaN(z.getRe()) || Double.isNaN(z.getIm()) || z.getRe() < A.getRe() + shift
+                    || z.getRe() > B.getRe() + shift || z.getIm() < A.getIm() + shiftIm
+                    || z.getIm() > D.getIm() + shiftIm) {
+                return null;
+            }
+            if (Complex.abs(step) <= tolerance) {
+                /** A short step alone may come from a huge f', so f itself has to be close to 0 (or to infinity) */
+                final double abs = Complex.abs(new Complex(valueAndDerivative[0], valueAndDerivative[1]));
+                final boolean converged = order > 0 ? abs < this.config.getMaxLegalAbsOfRoot()
+                        : abs > 1 / this.config.getMaxLegalAbsOfRoot();
+                return converged ? z : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * readConfig.
+     *
+     * Reads the default config from a .solverrc file, see SolverConfig.load().
+     * Solves which are already running keep the config they started with.
      *
      * @param solverrc the .solverrc file to read from
      */
     public static void readConfig(File solverrc) throws Exception {
-        /** Read the file to fileContents with isr */
-        InputStreamReader isr = new InputStreamReader(new FileInputStream(solverrc),
-                Charset.forName("UTF-8").newDecoder());
-        int data = isr.read();
-        String fileContents = "";
-        while (data != -1) {
-            fileContents += (char) data;
-            data = isr.read();
-        }
-        isr.close();
-        fileContents = fileContents.trim();
-        String[] args = fileContents.split(" ");
-        if (args.length != 7) {
-            throw new NumberFormatException("Incorrect argument count");
-        }
-        AUTO_RANGE_START = Integer.parseInt(args[0]);
-        AUTO_RANGE_INCREMENT = Integer.parseInt(args[1]);
-        AUTO_RANGE_MAX = Integer.parseInt(args[2]);
-        MAX_LEGAL_DELTAPHI_RATIO = Double.valueOf(args[3]);
-        STEPS_PER_SIDELENGTH = Integer.parseInt(args[4]);
-        MIN_LEGAL_WINDING_NUMBER_RATIO = Double.valueOf(args[5]);
-        MAX_LEGAL_ABS_OF_ROOT = Double.valueOf(args[6]);
+        defaultConfig = SolverConfig.load(solverrc);
     }
 
     /**
@@ -447,12 +1618,15 @@ public class Solver {
      * Does exactly what its name says
      */
     public static void restoreDefaultConfig() {
-        AUTO_RANGE_START = SolverDefaults.AUTO_RANGE_START;
-        AUTO_RANGE_INCREMENT = SolverDefaults.AUTO_RANGE_INCREMENT;
-        AUTO_RANGE_MAX = SolverDefaults.AUTO_RANGE_MAX;
-        MAX_LEGAL_DELTAPHI_RATIO = SolverDefaults.MAX_LEGAL_DELTAPHI_RATIO;
-        STEPS_PER_SIDELENGTH = SolverDefaults.STEPS_PER_SIDELENGTH;
-        MIN_LEGAL_WINDING_NUMBER_RATIO = SolverDefaults.MIN_LEGAL_WINDING_NUMBER_RATIO;
-        MAX_LEGAL_ABS_OF_ROOT = SolverDefaults.MAX_LEGAL_ABS_OF_ROOT;
+        defaultConfig = SolverConfig.DEFAULT;
+    }
+
+    /**
+     * getDefaultConfig.
+     *
+     * @return the config of the solves which are not given one
+     */
+    public static SolverConfig getDefaultConfig() {
+        return defaultConfig;
     }
 }
\ No newline at end of file
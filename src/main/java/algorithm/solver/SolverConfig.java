@@ -0,0 +1,318 @@
+package algorithm.solver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * The class SolverConfig.
+ *
+ * Immutable set of the values used to calibrate the Solver (see
+ * SolverDefaults). Every solve reads its values from a single SolverConfig, so
+ * differently tuned solves can run at the same time. Instances are made with a
+ * Builder or read from a .solverrc file with load().
+ *
+ * @Author Piotr Machura
+ */
+public final class SolverConfig {
+
+    /** The values of SolverDefaults */
+    public static final SolverConfig DEFAULT = new Builder().build();
+
+    /** Automatic range founder parameters */
+    private final int autoRangeStart;
+    private final int autoRangeIncrement;
+    private final int autoRangeMax;
+
+    /** Algorithm adjustments */
+    private final double maxLegalDeltaphiRatio;
+    private final int stepsPerSidelength;
+    private final double minLegalWindingNumberRatio;
+    private final double maxLegalAbsOfRoot;
+    private final WindingKernel windingKernel;
+    private final boolean adaptiveStepping;
+    private final SearchOrder searchOrder;
+    private final int initialGridSize;
+    private final boolean adaptiveInitialGrid;
+    private final boolean deriveLastChild;
+
+    private SolverConfig(final Builder builder) {
+        this.autoRangeStart = builder.autoRangeStart;
+        this.autoRangeIncrement = builder.autoRangeIncrement;
+        this.autoRangeMax = builder.autoRangeMax;
+        this.maxLegalDeltaphiRatio = builder.maxLegalDeltaphiRatio;
+        this.stepsPerSidelength = builder.stepsPerSidelength;
+        this.minLegalWindingNumberRatio = builder.minLegalWindingNumberRatio;
+        this.maxLegalAbsOfRoot = builder.maxLegalAbsOfRoot;
+        this.windingKernel = builder.windingKernel;
+        this.adaptiveStepping = builder.adaptiveStepping;
+        this.searchOrder = builder.searchOrder;
+        this.initialGridSize = builder.initialGridSize;
+        this.adaptiveInitialGrid = builder.adaptiveInitialGrid;
+        this.deriveLastChild = builder.deriveLastChild;
+    }
+
+    /**
+     * builder.
+     *
+     * @return a builder starting from the values of SolverDefaults
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * toBuilder.
+     *
+     * @return a builder starting from the values of this config
+     */
+    public Builder toBuilder() {
+        return new Builder().autoRangeStart(autoRangeStart).autoRangeIncrement(autoRangeIncrement)
+                .autoRangeMax(autoRangeMax).maxLegalDeltaphiRatio(maxLegalDeltaphiRatio)
+                .stepsPerSidelength(stepsPerSidelength).minLegalWindingNumberRatio(minLegalWindingNumberRatio)
+                .maxLegalAbsOfRoot(maxLegalAbsOfRoot).windingKernel(windingKernel).adaptiveStepping(adaptiveStepping)
+                .searchOrder(searchOrder).initialGridSize(initialGridSize)
+                .adaptiveInitialGrid(adaptiveInitialGrid).deriveLastChild(deriveLastChild);
+    }
+
+    /**
+     * load.
+     *
+     * Reads the config values from a .solverrc file to override SolverDefaults. The
+     * .solverrc file has to have at least 7 fields with values in the same order as
+     * the ones found in SolverDefaults separated by a space. They may be followed
+     * by the winding kernel, adaptive stepping, search order, initial grid size,
+     * adaptive initial grid and deriving the last child, in this order - the ones
+     * left out keep their default values, so 7 field files written before these
+     * existed still load.
+     *
+     * Sample .solverrc with values the same as SolverDefaults:
+     *
+     * 5 5 100 1.8 200 0.95 1
+     *
+     * or, with all the optional fields:
+     *
+     * 5 5 100 1.8 200 0.95 1 PHASE false DEPTH_FIRST 8 true true
+     *
+     * @param solverrc the .solverrc file to read from
+     *
+     * @return the config read
+     */
+    public static SolverConfig load(final File solverrc) throws Exception {
+        /** Read the file to fileContents with isr */
+        InputStreamReader isr = new InputStreamReader(new FileInputStream(solverrc),
+                Charset.forName("UTF-8").newDecoder());
+        int data = isr.read();
+        String fileContents = "";
+        while (data != -1) {
+            fileContents += (char) data;
+            data = isr.read();
+        }
+        isr.close();
+        fileContents = fileContents.trim();
+        String[] args = fileContents.split(" ");
+        if (args.length < 7 || args.length > 13) {
+            throw new NumberFormatException("Incorrect argument count");
+        }
+        Builder builder = new Builder().autoRangeStart(Integer.parseInt(args[0]))
+                .autoRangeIncrement(Integer.parseInt(args[1])).autoRangeMax(Integer.parseInt(args[2]))
+                .maxLegalDeltaphiRatio(Double.valueOf(args[3])).stepsPerSidelength(Integer.parseInt(args[4]))
+                .minLegalWindingNumberRatio(Double.valueOf(args[5])).maxLegalAbsOfRoot(Double.valueOf(args[6]));
+        if (args.length > 7) {
+            builder.windingKernel(WindingKernel.valueOf(args[7]));
+        }
+        if (args.length > 8) {
+            builder.adaptiveStepping(parseBoolean(args[8]));
+        }
+        if (args.length > 9) {
+            builder.searchOrder(SearchOrder.valueOf(args[9]));
+        }
+        if (args.length > 10) {
+            builder.initialGridSize(Integer.parseInt(args[10]));
+        }
+        if (args.length > 11) {
+            builder.adaptiveInitialGrid(parseBoolean(args[11]));
+        }
+        if (args.length > 12) {
+            builder.deriveLastChild(parseBoolean(args[12]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * parseBoolean.
+     *
+     * Unlike Boolean.parseBoolean() does not take a typo for false.
+     *
+     * @param arg the field of a .solverrc file
+     *
+     * @return true or false, whichever arg is
+     */
+    private static boolean parseBoolean(final String arg) {
+        if (arg.equals("true") || arg.equals("false")) {
+            return Boolean.parseBoolean(arg);
+        }
+        throw new IllegalArgumentException("Not a boolean: " + arg);
+    }
+
+    public int getAutoRangeStart() {
+        return autoRangeStart;
+    }
+
+    public int getAutoRangeIncrement() {
+        return autoRangeIncrement;
+    }
+
+    public int getAutoRangeMax() {
+        return autoRangeMax;
+    }
+
+    public double getMaxLegalDeltaphiRatio() {
+        return maxLegalDeltaphiRatio;
+    }
+
+    public int getStepsPerSidelength() {
+        return stepsPerSidelength;
+    }
+
+    public double getMinLegalWindingNumberRatio() {
+        return minLegalWindingNumberRatio;
+    }
+
+    public double getMaxLegalAbsOfRoot() {
+        return maxLegalAbsOfRoot;
+    }
+
+    public WindingKernel getWindingKernel() {
+        return windingKernel;
+    }
+
+    public boolean isAdaptiveStepping() {
+        return adaptiveStepping;
+    }
+
+    public SearchOrder getSearchOrder() {
+        return searchOrder;
+    }
+
+    public int getInitialGridSize() {
+        return initialGridSize;
+    }
+
+    public boolean isAdaptiveInitialGrid() {
+        return adaptiveInitialGrid;
+    }
+
+    public boolean isDeriveLastChild() {
+        return deriveLastChild;
+    }
+
+    /**
+     * The class Builder.
+     *
+     * Collects the values of a SolverConfig, starting from SolverDefaults.
+     */
+    public static final class Builder {
+        private int autoRangeStart = SolverDefaults.AUTO_RANGE_START;
+        private int autoRangeIncrement = SolverDefaults.AUTO_RANGE_INCREMENT;
+        private int autoRangeMax = SolverDefaults.AUTO_RANGE_MAX;
+        private double maxLegalDeltaphiRatio = SolverDefaults.MAX_LEGAL_DELTAPHI_RATIO;
+        private int stepsPerSidelength = SolverDefaults.STEPS_PER_SIDELENGTH;
+        private double minLegalWindingNumberRatio = SolverDefaults.MIN_LEGAL_WINDING_NUMBER_RATIO;
+        private double maxLegalAbsOfRoot = SolverDefaults.MAX_LEGAL_ABS_OF_ROOT;
+        private WindingKernel windingKernel = SolverDefaults.WINDING_KERNEL;
+        private boolean adaptiveStepping = SolverDefaults.ADAPTIVE_STEPPING;
+        private SearchOrder searchOrder = SolverDefaults.SEARCH_ORDER;
+        private int initialGridSize = SolverDefaults.INITIAL_GRID_SIZE;
+        private boolean adaptiveInitialGrid = SolverDefaults.ADAPTIVE_INITIAL_GRID;
+        private boolean deriveLastChild = SolverDefaults.DERIVE_LAST_CHILD;
+
+        private Builder() {
+        }
+
+        public Builder autoRangeStart(final int autoRangeStart) {
+            this.autoRangeStart = autoRangeStart;
+            return this;
+        }
+
+        public Builder autoRangeIncrement(final int autoRangeIncrement) {
+            this.autoRangeIncrement = autoRangeIncrement;
+            return this;
+        }
+
+        public Builder autoRangeMax(final int autoRangeMax) {
+            this.autoRangeMax = autoRangeMax;
+            return this;
+        }
+
+        public Builder maxLegalDeltaphiRatio(final double maxLegalDeltaphiRatio) {
+            this.maxLegalDeltaphiRatio = maxLegalDeltaphiRatio;
+            return this;
+        }
+
+        public Builder stepsPerSidelength(final int stepsPerSidelength) {
+            this.stepsPerSidelength = stepsPerSidelength;
+            return this;
+        }
+
+        public Builder minLegalWindingNumberRatio(final double minLegalWindingNumberRatio) {
+            this.minLegalWindingNumberRatio = minLegalWindingNumberRatio;
+            return this;
+        }
+
+        public Builder maxLegalAbsOfRoot(final double maxLegalAbsOfRoot) {
+            this.maxLegalAbsOfRoot = maxLegalAbsOfRoot;
+            return this;
+        }
+
+        public Builder windingKernel(final WindingKernel windingKernel) {
+            this.windingKernel = windingKernel;
+            return this;
+        }
+
+        public Builder adaptiveStepping(final boolean adaptiveStepping) {
+            this.adaptiveStepping = adaptiveStepping;
+            return this;
+        }
+
+        public Builder searchOrder(final SearchOrder searchOrder) {
+            this.searchOrder = searchOrder;
+            return this;
+        }
+
+        public Builder initialGridSize(final int initialGridSize) {
+            this.initialGridSize = initialGridSize;
+            return this;
+        }
+
+        public Builder adaptiveInitialGrid(final boolean adaptiveInitialGrid) {
+            this.adaptiveInitialGrid = adaptiveInitialGrid;
+            return this;
+        }
+
+        public Builder deriveLastChild(final boolean deriveLastChild) {
+            this.deriveLastChild = deriveLastChild;
+            return this;
+        }
+
+        /**
+         * build.
+         *
+         * @return the config with the values collected so far
+         */
+        public SolverConfig build() {
+            if (autoRangeStart <= 0 || autoRangeIncrement <= 0 || stepsPerSidelength <= 0) {
+                throw new IllegalArgumentException("Ranges, range increment and steps have to be positive");
+            }
+            if (initialGridSize <= 0 || Integer.bitCount(initialGridSize) != 1) {
+                /** Squares of the grid have to lie on the dyadic sample grid */
+                throw new IllegalArgumentException("The initial grid size has to be a power of 2");
+            }
+            if (windingKernel == null || searchOrder == null) {
+                throw new IllegalArgumentException("The winding kernel and search order cannot be null");
+            }
+            return new SolverConfig(this);
+        }
+    }
+}
@@ -4,7 +4,8 @@ package algorithm.solver;
  * The class SolverDefaults.
  *
  * Contains default values used to calibrate the Solver class. They can be
- * ovverriden inside the Solver class using the readConfig function.
+ * ovverriden for a single solve with a SolverConfig, or for all of them
+ * using the readConfig function of the Solver class.
  *
  * @Author Piotr Machura
  */
@@ -14,17 +15,82 @@ public class SolverDefaults {
     public static final int AUTO_RANGE_INCREMENT = 5;
     public static final int AUTO_RANGE_MAX = 100;
     static final int AUTO_RANGE_FAILED = 0;
+    /** Polynomials with roots further than this are searched for like other functions */
+    static final double AUTO_RANGE_POLYNOMIAL_MAX = 1e6;
 
     /** Algorithm adjustments */
     public static final double MAX_LEGAL_DELTAPHI_RATIO = 1.8;
     public static final int STEPS_PER_SIDELENGTH = 200;
     public static final double MIN_LEGAL_WINDING_NUMBER_RATIO = 0.95;
     public static final double MAX_LEGAL_ABS_OF_ROOT = 1;
+    /**
+     * QUADRANT counts the crossings of the axes by f, which takes no atan2 per
+     * sample and gives integral winding numbers. PHASE sums the phase changes of
+     * f instead.
+     */
+    public static final WindingKernel WINDING_KERNEL = WindingKernel.QUADRANT;
+    public static final SearchOrder SEARCH_ORDER = SearchOrder.DEPTH_FIRST;
+    /**
+     * Initial grid: the range is divided into INITIAL_GRID_SIZE x INITIAL_GRID_SIZE
+     * squares first (a power of 2). With the adaptive initial grid that is the
+     * smallest grid of a function which may have poles (an entire one may start
+     * from a single square) and the grid is made finer, up to
+     * MAX_INITIAL_GRID_SIZE, while f turns by more than
+     * INITIAL_GRID_MAX_TURN_RATIO * PI over the first steps of the contours -
+     * unless a Newton step shrinks |f| below INITIAL_GRID_ROOT_RATIO of it (or
+     * grows it above 1 / INITIAL_GRID_ROOT_RATIO of it), as close to a root (or a
+     * pole) it turns fast anyway.
+     */
+    public static final int INITIAL_GRID_SIZE = 8;
+    public static final boolean ADAPTIVE_INITIAL_GRID = true;
+    static final int MAX_INITIAL_GRID_SIZE = 32;
+    static final double INITIAL_GRID_MAX_TURN_RATIO = 0.5;
+    static final double INITIAL_GRID_ROOT_RATIO = 0.1;
+    /**
+     * Every contour sample is moved right by CONTOUR_SHIFT_RATIO of the smallest
+     * legal sidelength and up by CONTOUR_SHIFT_SLOPE times as much, so that roots
+     * lying on the lines of the grid (ex. on the axes) lie strictly inside a
+     * single square, well away from its contour.
+     */
+    static final double CONTOUR_SHIFT_RATIO = 0.3090169943749474;
+    static final double CONTOUR_SHIFT_SLOPE = 0.6180339887498949;
+
+    /**
+     * Adaptive stepping: start with ADAPTIVE_INITIAL_STEPS steps per side, halve
+     * steps over which f turns by more than MAX_LEGAL_DELTAPHI_RATIO lets the
+     * phase change be told (down to 1/STEPS_PER_SIDELENGTH of the side) and double
+     * the ones after a step over which it turns by less than ADAPTIVE_GROW_RATIO
+     * of that. Without it every step is the smallest.
+     */
+    public static final boolean ADAPTIVE_STEPPING = true;
+    static final int ADAPTIVE_INITIAL_STEPS = 8;
+    static final double ADAPTIVE_GROW_RATIO = 0.5;
+
+    /**
+     * The winding number of a square is the sum of its children's, so once the
+     * first three children have integral winding numbers the last one's is the
+     * square's minus theirs instead of being computed. A sibling miscounted by a
+     * contour passing right by a multiple root is passed on to it though, so
+     * there it may cost more evaluations than it saves.
+     */
+    public static final boolean DERIVE_LAST_CHILD = true;
 
     /** Output formatting adjustments */
     static final double ROUNDER_LOW = 1000d;
     static final double ROUNDER_MED = 10000d;
     static final double ROUNDER_HIGH = 100000d;
 
+    /** Newton iteration inside squares with winding number 1 */
+    static final int NEWTON_MAX_ITERATIONS = 50;
+    static final double NEWTON_TOLERANCE_RATIO = 1e-3;
+
+    /** Parallel solving: squares smaller than this part of the range are not forked */
+    static final double SEQUENTIAL_SIDE_RATIO = 1d / 64;
+    /** Breadth-first solving: smallest chunk of a level examined as a single task */
+    static final int MIN_LEVEL_CHUNK = 16;
+
+    /** Number of contour samples remembered during a single solve */
+    static final int SAMPLE_CACHE_SIZE = 1 << 15;
+
     /** */
 }
\ No newline at end of file
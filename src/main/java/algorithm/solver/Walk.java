@@ -0,0 +1,165 @@
+package algorithm.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The class Walk.
+ *
+ * An adaptive walk along the path of a contour (see ContourBatches.walk()):
+ * the samples taken so far and a stack of samples ahead of the last one,
+ * evaluated but not taken yet because the step to them turned out to be too
+ * steep.
+ *
+ * @Author Piotr Machura
+ */
+final class Walk {
+
+    /** Unsampled samples of a single sample contour */
+    private static final int[] FIRST_SAMPLE = { 0 };
+
+    final Contour path;
+    final long length;
+    final long firstStep;
+    long step;
+    long[] t = new long[4 * SolverDefaults.ADAPTIVE_INITIAL_STEPS + 1];
+    double[] re = new double[t.length];
+    double[] im = new double[t.length];
+    double[] valueRe = new double[t.length];
+    double[] valueIm = new double[t.length];
+    int size;
+    final ArrayList<Contour> ahead = new ArrayList<Contour>();
+    /** The sample to be evaluated next */
+    long next;
+    /** True if next is two steps ahead, which are not taken before the middle is evaluated */
+    boolean twoSteps;
+
+    Walk(final Contour path) {
+        this.path = path;
+        this.length = path.edge ? path.n : 4L * path.n;
+        this.firstStep = Math.max(1, path.n / SolverDefaults.ADAPTIVE_INITIAL_STEPS);
+        this.step = firstStep;
+    }
+
+    /**
+     * probe.
+     *
+     * @return a single sample contour of the next sample, to be evaluated
+     */
+    Contour probe() {
+        final Contour probe = path.resampled(new long[] { next }, 1);
+        probe.unsampled = FIRST_SAMPLE;
+        return probe;
+    }
+
+    /**
+     * advance.
+     *
+     * Takes the samples ahead for as long as the steps to them are not steep
+     * and picks the sample to evaluate next: the middle of two steps or of a
+     * steep step, or the sample two steps further.
+     *
+     * @param probe    the evaluated next sample
+     * @param steepCos cosine of the largest turn of f over a step
+     * @param flatCos  cosine of the largest turn of f over a step followed by
+     *                 a twice as long one
+     *
+     * @return false if the walk is over
+     */
+    boolean advance(final Contour probe, final double steepCos, final double flatCos) {
+        if (size == 0) {
+            take(probe);
+        } else {
+            ahead.add(probe);
+        }
+        if (twoSteps) {
+            twoSteps = false;
+            next = (t[size - 1] + probe.t[0]) / 2;
+            return true;
+        }
+        while (!ahead.isEmpty()) {
+            final Contour sample = ahead.get(ahead.size() - 1);
+            final long last = t[size - 1];
+            final long d = sample.t[0] - last;
+            if (d > 1 && isSteep(valueRe[size - 1], valueIm[size - 1], sample.valueRe[0], sample.valueIm[0],
+                    steepCos)) {
+                next = last + d / 2;
+                return true;
+            }
+            final boolean flat = !isSteep(valueRe[size - 1], valueIm[size - 1], sample.valueRe[0],
+                    sample.valueIm[0], flatCos);
+            take(sample);
+            ahead.remove(ahead.size() - 1);
+            step = flat ? Math.min(2 * d, path.n / 2) : d;
+        }
+        final long last = t[size - 1];
+        if (last == length) {
+            return false;
+        }
+        if (last % path.n == 0) {
+            /** Every side is walked just like an edge of the grid */
+            step = firstStep;
+        }
+        /** Stop at the next corner */
+        next = Math.min(last + 2 * step, (last / path.n + 1) * path.n);
+        twoSteps = next - last > 1;
+        return true;
+    }
+
+    void take(final Contour sample) {
+        if (size == t.length) {
+            t = Arrays.copyOf(t, 2 * size);
+            re = Arrays.copyOf(re, 2 * size);
+            im = Arrays.copyOf(im, 2 * size);
+            valueRe = Arrays.copyOf(valueRe, 2 * size);
+            valueIm = Arrays.copyOf(valueIm, 2 * size);
+        }
+        t[size] = sample.t[0];
+        re[size] = sample.re[0];
+        im[size] = sample.im[0];
+        valueRe[size] = sample.valueRe[0];
+        valueIm[size] = sample.valueIm[0];
+        size++;
+    }
+
+    /**
+     * contour.
+     *
+     * @return the evaluated contour of the samples taken, followed by the end
+     *         of the path left unsampled if the walk was stopped before it
+     */
+    Contour contour() {
+        final boolean over = size > 0 && t[size - 1] == length;
+        final long[] taken = Arrays.copyOf(t, over ? size : size + 1);
+        taken[taken.length - 1] = length;
+        final Contour contour = path.resampled(taken, taken.length);
+        System.arraycopy(re, 0, contour.re, 0, size);
+        System.arraycopy(im, 0, contour.im, 0, size);
+        System.arraycopy(valueRe, 0, contour.valueRe, 0, size);
+        System.arraycopy(valueIm, 0, contour.valueIm, 0, size);
+        if (!over) {
+            contour.unsampled = new int[] { size };
+        }
+        return contour;
+    }
+
+    /**
+     * isSteep.
+     *
+     * @param minCos cosine of the largest angle allowed
+     *
+     * @return true if the angle between values a and b of f is bigger than the
+     *         one of minCos, f changes by a lot between them (see
+     *         Solver.isLargeChange(), f may have turned a whole time around a
+     *         root close by) or one of them has no phase (it is 0 or undefined)
+     */
+    private static boolean isSteep(final double aRe, final double aIm, final double bRe, final double bIm,
+            final double minCos) {
+        final double norms = Math.sqrt((aRe * aRe + aIm * aIm) * (bRe * bRe + bIm * bIm));
+        if (!(norms > 0) || Solver.isLargeChange(aRe, aIm, bRe, bIm)) {
+            return true;
+        }
+        final double dot = aRe * bRe + aIm * bIm;
+        return dot < minCos * norms;
+    }
+}
@@ -0,0 +1,15 @@
+package algorithm.solver;
+
+/**
+ * Winding number kernel enum
+ *
+ * @param PHASE    sums phase changes of f between samples (Complex.phase() at
+ *                 every sample)
+ * @param QUADRANT counts signed transitions of f between quadrants of the
+ *                 plane, giving an exact integer
+ *
+ * @Author Piotr Machura
+ */
+public enum WindingKernel {
+    PHASE, QUADRANT
+}
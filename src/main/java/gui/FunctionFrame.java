@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.net.URL;
 
 import javax.imageio.ImageIO;
@@ -42,10 +45,17 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import visual.InputSpace;
 import visual.OutputSpace;
+import algorithm.solver.Root;
+import algorithm.solver.RootListener;
+import algorithm.solver.SolveBudget;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.SolveResult;
 import algorithm.solver.Solver;
 import algorithm.solver.SolverAccuracy;
 import visual.GraphicSolver;
+import algorithm.parser.exception.CalculatorException;
 import algorithm.parser.function.Complex;
+import algorithm.parser.function.CompiledComplexFunction;
 
 /**
  * The class FunctionFrame.
@@ -89,6 +99,15 @@ class FunctionFrame extends JFrame implements ActionListener {
     private static final int TIMEOUT_THRESHOLD = 3000;
     private Boolean calculationsFinished = false;
 
+    /** Number of roots listed while the solver is still running */
+    private int rootsFoundSoFar;
+
+    /** The solve still running, cancelled when the roots are calculated again */
+    private CompletableFuture<SolveResult> calculation;
+    private ExecutorService autoRangeExec;
+    /** Number of calculations started, so that a cancelled one cannot show its roots */
+    private volatile int generation;
+
     /**
      * FunctionFrame constructor.
      *
@@ -260,59 +279,150 @@ class FunctionFrame extends JFrame implements ActionListener {
 
     }
 
+    /**
+     * calculate.
+     *
+     * Solves for the roots of f_z and displays them, cancelling the calculation
+     * started before (if it is still running). Roots of a cancelled calculation
+     * which were already on their way to the display are not shown.
+     */
     private void calculate() {
-        ExecutorService solverExec = Executors.newSingleThreadExecutor();
-        solverExec.execute(new Runnable() {
-            @Override
-            public void run() {
-                Timer timeoutTimer = new Timer(TIMEOUT_THRESHOLD, new ActionListener() {
-                    @Override
-                    public void actionPerformed(ActionEvent e) {
-                        if (!calculationsFinished) {
-                            solutionsDisplay
-                                    .setText("The solver timed out after " + TIMEOUT_THRESHOLD / 1000 + " seconds.");
-                        }
-                        solverExec.shutdownNow();
+        final int run = ++generation;
+        calculationsFinished = false;
+        if (calculation != null) {
+            calculation.cancel(true);
+            calculation = null;
+        }
+        if (autoRangeExec != null) {
+            autoRangeExec.shutdownNow();
+            autoRangeExec = null;
+        }
+        final CompiledComplexFunction compiled;
+        try {
+            /** The solver evaluates the same function at many points */
+            compiled = new CompiledComplexFunction(f_z, "z", true, true);
+        } catch (CalculatorException e) {
+            /** A function which is not well-formed has no roots */
+            displaySolutions(null, false, run);
+            return;
+        }
+        if (range == AUTO_RANGE) {
+            final ExecutorService solverExec = Executors.newSingleThreadExecutor();
+            autoRangeExec = solverExec;
+            solverExec.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Timer timeoutTimer = new Timer(TIMEOUT_THRESHOLD, new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            if (!calculationsFinished && run == generation) {
+                                solutionsDisplay.setText(
+                                        "The solver timed out after " + TIMEOUT_THRESHOLD / 1000 + " seconds.");
+                            }
+                            solverExec.shutdownNow();
 
+                        }
+                    });
+                    /** Use solver to get solutions */
+                    timeoutTimer.start();
+                    /** Candidate ranges are probed in parallel */
+                    final ArrayList<Complex> found = new ArrayList<Complex>();
+                    for (Root root : Solver.solve(compiled, acc,
+                            SolveOptions.builder().pool(ForkJoinPool.commonPool()).build()).getRoots()) {
+                        found.add(root.getValue());
                     }
-                });
-                timeoutTimer.start();
-                /** Use solver to get solutions */
-                if (range == AUTO_RANGE) {
-                    solutions = Solver.solve(f_z, acc);
-                } else {
-                    solutions = Solver.solve(range, f_z, acc);
+                    displaySolutions(found, false, run);
                 }
-                /** Format solutions */
-                String solutionsString = "";
-                if (solutions == null || solutions.size() == 0) {
-                    if (range != AUTO_RANGE) {
-                        solutionsString = "No roots were found within range " + range + ".";
-                    } else {
-                        solutionsString += "No roots were found automatically.";
-                    }
-                } else {
-                    if (range != AUTO_RANGE) {
-                        solutionsString += "Roots found in range " + range + " :\n";
-                    } else {
-                        solutionsString += "Roots found automatically:\n";
-                    }
+            });
+        } else {
+            /**
+             * Roots are listed as soon as they are found and the budget stops the solver
+             * in time, keeping the roots found so far
+             */
+            rootsFoundSoFar = 0;
+            final SolveOptions options = SolveOptions.builder()
+                    .budget(new SolveBudget(TIMEOUT_THRESHOLD, Long.MAX_VALUE, Integer.MAX_VALUE))
+                    .listener(new RootListener() {
+                        @Override
+                        public void rootFound(final Root root) {
+                            SwingUtilities.invokeLater(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (run != generation) {
+                                        return;
+                                    }
+                                    if (rootsFoundSoFar == 0) {
+                                        solutionsDisplay.setText("Roots found so far in range " + range + " :");
+                                    }
+                                    rootsFoundSoFar++;
+                                    solutionsDisplay.append("\n" + rootsFoundSoFar + "\t|\t" + root.getValue());
+                                }
+                            });
+                        }
+                    }).build();
+            calculation = Solver.solveAsync(range, compiled, acc, options);
+            calculation.thenAccept(new Consumer<SolveResult>() {
+                        @Override
+                        public void accept(final SolveResult result) {
+                            final ArrayList<Complex> found = new ArrayList<Complex>();
+                            for (Root root : result.getRoots()) {
+                                found.add(root.getValue());
+                            }
+                            displaySolutions(found, result.isPartial(), run);
+                        }
+                    });
+        }
+    }
 
-                    for (int i = 0; i < solutions.size(); i++) {
-                        solutionsString += i + 1 + "\t|\t";
-                        solutionsString += solutions.get(i) + "\n";
-                    }
+    /**
+     * displaySolutions.
+     *
+     * Replaces the contents of solutionsDisplay with the final list of solutions,
+     * unless the roots have been calculated again in the meantime.
+     *
+     * @param found   the solutions (null if f_z is not well-formed)
+     * @param partial whether the solver timed out before searching the whole range
+     * @param run     the generation of the calculation which found them
+     */
+    private void displaySolutions(final ArrayList<Complex> found, final boolean partial, final int run) {
+        /** Format solutions */
+        String solutionsString = "";
+        if (found == null || found.size() == 0) {
+            if (partial) {
+                solutionsString = "The solver timed out after " + TIMEOUT_THRESHOLD / 1000
+                        + " seconds before finding any roots within range " + range + ".";
+            } else if (range != AUTO_RANGE) {
+                solutionsString = "No roots were found within range " + range + ".";
+            } else {
+                solutionsString += "No roots were found automatically.";
+            }
+        } else {
+            if (partial) {
+                solutionsString += "Roots found in range " + range + " before the solver timed out after "
+                        + TIMEOUT_THRESHOLD / 1000 + " seconds:\n";
+            } else if (range != AUTO_RANGE) {
+                solutionsString += "Roots found in range " + range + " :\n";
+            } else {
+                solutionsString += "Roots found automatically:\n";
+            }
+
+            for (int i = 0; i < found.size(); i++) {
+                solutionsString += i + 1 + "\t|\t";
+                solutionsString += found.get(i) + "\n";
+            }
+        }
+        final String solutionsReadyToDisplay = solutionsString.trim();
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (run != generation) {
+                    return;
                 }
-                final String solutionsReadyToDisplay = solutionsString.trim();
-                SwingUtilities.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
+                solutions = found;
 
-                        /** Add solutions to display and scroll to the top */
-                        solutionsDisplay.setText(solutionsReadyToDisplay);
-                        solutionsDisplay.setCaretPosition(0);
-                    }
-                });
+                /** Add solutions to display and scroll to the top */
+                solutionsDisplay.setText(solutionsReadyToDisplay);
+                solutionsDisplay.setCaretPosition(0);
                 calculationsFinished = true;
             }
         });
@@ -61,6 +61,8 @@ public class OptionsFrame extends JFrame implements ActionListener {
     JTextArea[] optionLabels;
     JTextField[] optionFields;
     JButton applyButton, restoreButton;
+    /** Optional fields of the .solverrc file which are not shown, kept as they are */
+    String optionalFields = "";
     public static final File solverrc = new File(System.getProperty("user.dir") + "\\.solverrc");
 
     private OptionsFrame() {
@@ -197,12 +199,16 @@ public class OptionsFrame extends JFrame implements ActionListener {
             isr.close();
             fileContents = fileContents.trim();
             String[] args = fileContents.split(" ");
-            if (args.length != 7) {
+            if (args.length < optionFields.length) {
                 throw new NumberFormatException("Incorrect argument count");
             }
-            for (int i = 0; i < args.length; i++) {
+            for (int i = 0; i < optionFields.length; i++) {
                 optionFields[i].setText(args[i]);
             }
+            optionalFields = "";
+            for (int i = optionFields.length; i < args.length; i++) {
+                optionalFields += args[i] + " ";
+            }
         } catch (Exception e) {
             /**
              * Something is wrong with the .solverrc file (or it doesn't exist) - load
@@ -221,6 +227,7 @@ public class OptionsFrame extends JFrame implements ActionListener {
         optionFields[4].setText("" + SolverDefaults.STEPS_PER_SIDELENGTH);
         optionFields[5].setText("" + SolverDefaults.MIN_LEGAL_WINDING_NUMBER_RATIO);
         optionFields[6].setText("" + SolverDefaults.MAX_LEGAL_ABS_OF_ROOT);
+        optionalFields = "";
         Solver.restoreDefaultConfig();
         try {
             solverrc.delete();
@@ -245,6 +252,7 @@ public class OptionsFrame extends JFrame implements ActionListener {
             osw.write(optionFields[i].getText());
             osw.write(" ");
         }
+        osw.write(optionalFields);
         osw.close();
     }
 
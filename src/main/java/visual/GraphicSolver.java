@@ -20,9 +20,8 @@ import javax.swing.JPanel;
 import java.net.URL;
 
 import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
 import algorithm.parser.function.Complex;
-import algorithm.parser.main.Parser;
-import algorithm.parser.util.Variable;
 import algorithm.solver.Solver;
 import algorithm.solver.SolverAccuracy;
 
@@ -44,6 +43,7 @@ public class GraphicSolver extends JPanel
     float zoomX = 200, zoomY = 200;
     float scaleX, scaleY;
     String f;
+    CompiledComplexFunction compiled;
     ArrayList<Complex> sq_points = new ArrayList<Complex>();
     boolean panning = false;
 
@@ -69,6 +69,12 @@ public class GraphicSolver extends JPanel
 
     public GraphicSolver(final String f, final int range) {
         this.f = f;
+        try {
+            this.compiled = new CompiledComplexFunction(f);
+        } catch (CalculatorException e) {
+            /** Leave it null - no square will be animated */
+            this.compiled = null;
+        }
         this.range = range;
         scaleX = range;
         scaleY = range;
@@ -121,7 +127,7 @@ public class GraphicSolver extends JPanel
     ArrayList<Complex[]> getChildPositions(int deep, Complex[] parents) {
         ArrayList<Complex[]> tmpChilds = new ArrayList<Complex[]>();
         tmpChilds.add(parents);
-        if (deep == 0) {
+        if (deep == 0 || compiled == null) {
             return tmpChilds;
         }
 
@@ -137,25 +143,25 @@ public class GraphicSolver extends JPanel
         Complex MIDDLE = new Complex((AB_mid.getRe() + CD_mid.getRe()) / 2, (AD_mid.getIm() + BC_mid.getIm()) / 2);
 
         Boolean rect1zero = new Solver(parents[0], AB_mid, MIDDLE, AD_mid, SolverAccuracy.LOW)
-                .checkWindingNumber(this.f);
+                .checkWindingNumber(this.compiled);
         ArrayList<Complex[]> rect1 = new ArrayList<Complex[]>();
         if (rect1zero)
             rect1 = getChildPositions(deep - 1, new Complex[] { parents[0], AB_mid, MIDDLE, AD_mid });
 
         Boolean rect2zero = new Solver(AB_mid, parents[1], BC_mid, MIDDLE, SolverAccuracy.LOW)
-                .checkWindingNumber(this.f);
+                .checkWindingNumber(this.compiled);
         ArrayList<Complex[]> rect2 = new ArrayList<Complex[]>();
         if (rect2zero)
             rect2 = getChildPositions(deep - 1, new Complex[] { AB_mid, parents[1], BC_mid, MIDDLE });
 
         Boolean rect3zero = new Solver(MIDDLE, BC_mid, parents[2], CD_mid, SolverAccuracy.LOW)
-                .checkWindingNumber(this.f);
+                .checkWindingNumber(this.compiled);
         ArrayList<Complex[]> rect3 = new ArrayList<Complex[]>();
         if (rect3zero)
             rect3 = getChildPositions(deep - 1, new Complex[] { MIDDLE, BC_mid, parents[2], CD_mid });
 
         Boolean rect4zero = new Solver(AD_mid, MIDDLE, CD_mid, parents[3], SolverAccuracy.LOW)
-                .checkWindingNumber(this.f);
+                .checkWindingNumber(this.compiled);
         ArrayList<Complex[]> rect4 = new ArrayList<Complex[]>();
         if (rect4zero)
             rect4 = getChildPositions(deep - 1, new Complex[] { AD_mid, MIDDLE, CD_mid, parents[3] });
@@ -187,20 +193,30 @@ public class GraphicSolver extends JPanel
             return;
         }
 
+        // evaluate all rectangle points at once
+        int n = sq_points.size();
+        double[] pointRe = new double[n];
+        double[] pointIm = new double[n];
+        double[] valueRe = new double[n];
+        double[] valueIm = new double[n];
+        for (int k = 0; k < n; k++) {
+            pointRe[k] = sq_points.get(k).getRe();
+            pointIm[k] = sq_points.get(k).getIm();
+        }
+        if (compiled != null) {
+            compiled.evaluate(pointRe, pointIm, valueRe, valueIm, n);
+        }
+
         // draw rectangle points
-        for (Complex p : sq_points) {
-            Variable z0 = new Variable("z", p);
-            Complex z = new Complex();
-            try {
-                z = Parser.eval(f, z0).getComplexValue();
-            } catch (CalculatorException e) {
+        for (int k = 0; k < n; k++) {
+            Complex p = sq_points.get(k);
+            Complex z = new Complex(valueRe[k], valueIm[k]);
+            if (compiled == null || Double.isNaN(z.getRe()) || Double.isNaN(z.getIm())) {
                 z = new Complex(1000000, 1000000);
             }
 
-            double fi;
-            try {
-                fi = Complex.phase(z) / 2 / Math.PI;
-            } catch (Exception e) {
+            double fi = Complex.phaseOrNaN(z.getRe(), z.getIm()) / 2 / Math.PI;
+            if (Double.isNaN(fi)) {
                 fi = 0;
             }
 
@@ -13,9 +13,8 @@ import java.util.ArrayList;
 import javax.swing.JPanel;
 
 import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
 import algorithm.parser.function.Complex;
-import algorithm.parser.main.Parser;
-import algorithm.parser.util.Variable;
 
 /**
  * @Author Kacper Ledwosiński
@@ -30,12 +29,19 @@ public class InputSpace extends JPanel implements MouseMotionListener, MouseList
     float zoomX = 200, zoomY = 200;
     float scaleX = 4, scaleY = 4;
     String f;
+    CompiledComplexFunction compiled;
     ArrayList<Complex> sq_points = new ArrayList<Complex>();
     boolean panning = false;
     Graphics2D previous;
 
     public InputSpace(String f) {
         this.f = f;
+        try {
+            this.compiled = new CompiledComplexFunction(f);
+        } catch (CalculatorException e) {
+            /** Leave it null - every point will be painted as undefined */
+            this.compiled = null;
+        }
         addMouseMotionListener(this);
         addMouseListener(this);
         addMouseWheelListener(this);
@@ -68,23 +74,32 @@ public class InputSpace extends JPanel implements MouseMotionListener, MouseList
          * Paints output space with small 1x1 pixel rectangles, color chosen as follows:
          * hue = phase f(z) , saturation = 1, brightness = raidus f(z)
          */
+        double[] rowRe = new double[getWidth() + 1];
+        double[] rowIm = new double[getWidth() + 1];
+        double[] valueRe = new double[getWidth() + 1];
+        double[] valueIm = new double[getWidth() + 1];
         for (int j = -getHeight() / 2 + centerY; j < getHeight() / 2 + centerY; j++) {
+            /** Evaluate the whole row at once */
+            int n = 0;
             for (int i = -getWidth() / 2 - centerX; i < getWidth() / 2 - centerX; i++) {
+                rowRe[n] = i * tickX;
+                rowIm[n] = j * tickY;
+                n++;
+            }
+            if (compiled != null) {
+                compiled.evaluate(rowRe, rowIm, valueRe, valueIm, n);
+            }
 
-                double x = i * tickX;
-                double y = j * tickY;
-                Variable z0 = new Variable("z", new Complex(x, y));
-                Complex z = new Complex();
-                try {
-                    z = Parser.eval(f, z0).getComplexValue();
-                } catch (CalculatorException e) {
+            n = 0;
+            for (int i = -getWidth() / 2 - centerX; i < getWidth() / 2 - centerX; i++) {
+                Complex z = new Complex(valueRe[n], valueIm[n]);
+                if (compiled == null || Double.isNaN(z.getRe()) || Double.isNaN(z.getIm())) {
                     z = new Complex(1000000, 1000000);
                 }
+                n++;
 
-                double fi;
-                try {
-                    fi = Complex.phase(z) / 2 / Math.PI;
-                } catch (Exception e) {
+                double fi = Complex.phaseOrNaN(z.getRe(), z.getIm()) / 2 / Math.PI;
+                if (Double.isNaN(fi)) {
                     fi = 0;
                 }
 
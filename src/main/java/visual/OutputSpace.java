@@ -55,10 +55,8 @@ public class OutputSpace extends JPanel {
 
                 double x = i * tickX;
                 double y = j * tickY;
-                double fi;
-                try {
-                    fi = Complex.phase(new Complex(x, y)) / (2 * Math.PI);
-                } catch (Exception e) {
+                double fi = Complex.phaseOrNaN(x, y) / (2 * Math.PI);
+                if (Double.isNaN(fi)) {
                     fi = 0;
                 }
                 double r = Complex.abs(new Complex(x, y));
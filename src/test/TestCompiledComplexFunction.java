@@ -0,0 +1,343 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
+import algorithm.parser.function.Complex;
+import algorithm.parser.function.ComplexKernel;
+import algorithm.parser.main.Parser;
+import algorithm.parser.util.Variable;
+import algorithm.solver.Root;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.Solver;
+import algorithm.solver.SolverAccuracy;
+
+/**
+ * Test CompiledComplexFunction against the string interpreter. Both are
+ * required to give exactly the same values (including the quirks of the
+ * original grammar) at every point.
+ *
+ * @Author Piotr Machura
+ */
+public class TestCompiledComplexFunction {
+    static final String[] functions = { "z", "sin(z)", "e^z-1", "z-i", "z^2+z-i", "z^3-e^z", "ln(z^2-3*i)", "1/sin(z)",
+            "z/(e^z)", "2*pi/3*z", "1-2*z+3", "2^z", "2j*z+(1+2j)^3", "sqrt(z)*cbrt(z)-log(z)", "sinh(z)/cosh(z)+tanh(z)",
+            "asin(z)+acos(z)*atan(z)", "(z-1)*(z+1)/(z-2j)", "tan(z)^(1+j)", "z*z*z-z^3", "3.5*z-0.25" };
+
+    static final Complex[] points = { new Complex(0.5, 0.25), new Complex(-1.5, 2), new Complex(3, -0.75),
+            new Complex(-0.1, -4) };
+
+    private static void assertSameValue(String f_z, Complex z) throws CalculatorException {
+        Complex expected = Parser.eval(f_z, new Variable("z", z)).getComplexValue();
+        Complex actual = new CompiledComplexFunction(f_z, "z", false).getValue(z);
+        assertEquals(f_z + " at " + z, expected.getRe(), actual.getRe(), 0);
+        assertEquals(f_z + " at " + z, expected.getIm(), actual.getIm(), 0);
+    }
+
+    @Test
+    public void testCompiled_1() throws CalculatorException {
+        for (String f_z : functions) {
+            for (Complex z : points) {
+                assertSameValue(f_z, z);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_2() throws CalculatorException {
+        /** Spaces and upper case are ignored just like in the interpreter */
+        assertSameValue(" Z^2 + SIN( z ) ", new Complex(1, 1));
+    }
+
+    @Test(expected = CalculatorException.class)
+    public void testCompiled_3() throws CalculatorException {
+        new CompiledComplexFunction("sin(z");
+    }
+
+    @Test(expected = CalculatorException.class)
+    public void testCompiled_4() throws CalculatorException {
+        new CompiledComplexFunction("foo(z)");
+    }
+
+    @Test(expected = CalculatorException.class)
+    public void testCompiled_5() throws CalculatorException {
+        new CompiledComplexFunction("x+1");
+    }
+
+    @Test(expected = CalculatorException.class)
+    public void testCompiled_6() throws CalculatorException {
+        new CompiledComplexFunction("1/z").getValue(new Complex(0, 0));
+    }
+
+    @Test
+    public void testCompiled_7() throws CalculatorException {
+        Complex[] expected = { new Complex(-Math.PI, 0), new Complex(0, 0), new Complex(Math.PI, 0) };
+
+        ArrayList<Root> solutions = Solver.solve(5, new CompiledComplexFunction("sin(z)"), SolverAccuracy.MED,
+                SolveOptions.DEFAULT).getRoots();
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getValue().getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getValue().getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testCompiled_8() {
+        assertTrue(Solver.solve(5, "sin(z", SolverAccuracy.LOW).isEmpty());
+    }
+
+    @Test
+    public void testCompiled_9() throws CalculatorException {
+        double[] out = new double[2];
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            ComplexKernel kernel = f.jit();
+            for (Complex z : points) {
+                Complex expected = f.getValue(z);
+                kernel.evaluate(z.getRe(), z.getIm(), out);
+                assertEquals(f_z + " at " + z, expected.getRe(), out[0], 0);
+                assertEquals(f_z + " at " + z, expected.getIm(), out[1], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_10() throws CalculatorException {
+        /** Kernels are cached by the normalized expression */
+        assertSame(new CompiledComplexFunction("z^2 + 1").jit(), new CompiledComplexFunction("Z^2+1").jit());
+    }
+
+    @Test(expected = CalculatorException.class)
+    public void testCompiled_11() throws CalculatorException {
+        new CompiledComplexFunction("1/z").jit().evaluate(0, 0, new double[2]);
+    }
+
+    @Test
+    public void testCompiled_12() throws CalculatorException {
+        int n = points.length;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = points[i].getRe();
+            im[i] = points[i].getIm();
+        }
+        double[] outRe = new double[n];
+        double[] outIm = new double[n];
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            f.evaluate(re, im, outRe, outIm, n);
+            for (int i = 0; i < n; i++) {
+                Complex expected = f.getValue(points[i]);
+                assertEquals(f_z + " at " + points[i], expected.getRe(), outRe[i], 0);
+                assertEquals(f_z + " at " + points[i], expected.getIm(), outIm[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_13() throws CalculatorException {
+        /** Undefined points of a batch are NaN, the others are still computed */
+        double[] re = { 0, 2 };
+        double[] im = { 0, 0 };
+        double[] outRe = new double[2];
+        double[] outIm = new double[2];
+        new CompiledComplexFunction("1/z").evaluate(re, im, outRe, outIm, 2);
+        assertTrue(Double.isNaN(outRe[0]) && Double.isNaN(outIm[0]));
+        assertEquals(0.5, outRe[1], 0);
+        assertEquals(0, outIm[1], 0);
+    }
+
+    @Test
+    public void testCompiled_14() throws CalculatorException {
+        /** Optimized functions agree with the interpreter up to rounding */
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            for (Complex z : points) {
+                Complex expected = Parser.eval(f_z, new Variable("z", z)).getComplexValue();
+                Complex actual = f.getValue(z);
+                double tolerance = 1e-12 * Math.max(1, Complex.abs(expected));
+                assertEquals(f_z + " at " + z, expected.getRe(), actual.getRe(), tolerance);
+                assertEquals(f_z + " at " + z, expected.getIm(), actual.getIm(), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_15() throws CalculatorException {
+        /** Integer powers are multiplications, so they are defined at 0 */
+        Complex value = new CompiledComplexFunction("z^3+2^z").getValue(new Complex(0, 0));
+        assertEquals(0, value.getRe(), 0);
+        assertEquals(0, value.getIm(), 0);
+        /** Undefined constant subtrees are not folded away */
+        try {
+            new CompiledComplexFunction("z+1/(2-2)").getValue(new Complex(1, 1));
+            assertTrue(false);
+        } catch (CalculatorException e) {
+            /** Expected */
+        }
+    }
+
+    @Test
+    public void testCompiled_16() throws CalculatorException {
+        /** Derivatives agree with central differences */
+        String[] differentiable = { "z", "sin(z)", "e^z-1", "z^2+z-i", "z^3-e^z", "ln(z^2-3*i)", "1/sin(z)",
+                "z/(e^z)", "2^z", "sqrt(z)*log(z)", "sinh(z)/cosh(z)+tanh(z)", "asin(z)+acos(z)*atan(z)",
+                "(z-1)*(z+1)/(z-2j)", "tan(z)^(1+j)", "z^(0.5)", "cos(z)^2+sin(z)^2" };
+        double h = 1e-6;
+        for (String f_z : differentiable) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            for (Complex z : points) {
+                Complex derivative = f.getValueAndDerivative(z)[1];
+                Complex forward = f.getValue(new Complex(z.getRe() + h, z.getIm()));
+                Complex backward = f.getValue(new Complex(z.getRe() - h, z.getIm()));
+                double expectedRe = (forward.getRe() - backward.getRe()) / (2 * h);
+                double expectedIm = (forward.getIm() - backward.getIm()) / (2 * h);
+                double tolerance = 1e-5 * Math.max(1, Complex.abs(derivative));
+                assertEquals(f_z + " at " + z, expectedRe, derivative.getRe(), tolerance);
+                assertEquals(f_z + " at " + z, expectedIm, derivative.getIm(), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_17() throws CalculatorException {
+        Complex[] valueAndDerivative = new CompiledComplexFunction("z^3").getValueAndDerivative(new Complex(1, 1));
+        /** (1+i)^3 = -2+2i, 3(1+i)^2 = 6i */
+        assertEquals(-2, valueAndDerivative[0].getRe(), 1e-12);
+        assertEquals(2, valueAndDerivative[0].getIm(), 1e-12);
+        assertEquals(0, valueAndDerivative[1].getRe(), 1e-12);
+        assertEquals(6, valueAndDerivative[1].getIm(), 1e-12);
+        /** cbrt is analytic on the real axis */
+        valueAndDerivative = new CompiledComplexFunction("cbrt(z)").getValueAndDerivative(new Complex(8, 0));
+        assertEquals(2, valueAndDerivative[0].getRe(), 1e-12);
+        assertEquals(1.0 / 12, valueAndDerivative[1].getRe(), 1e-12);
+    }
+
+    @Test
+    public void testCompiled_18() throws CalculatorException {
+        String[] entire = { "z", "sin(z)*cosh(z)", "e^z-1", "z^3-2^z", "z*(z-4)*cos(z)*e^z" };
+        String[] notEntire = { "1/z", "tan(z)", "ln(z-i)", "sqrt(z)", "z^(0.5)", "z^z" };
+        for (String f_z : entire) {
+            assertTrue(f_z, new CompiledComplexFunction(f_z).isEntire());
+        }
+        for (String f_z : notEntire) {
+            assertTrue(f_z, !new CompiledComplexFunction(f_z).isEntire());
+        }
+    }
+
+    @Test
+    public void testCompiled_19() throws CalculatorException {
+        /** The non-throwing versions agree with getValue() where f is defined */
+        double[] out = new double[4];
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            for (Complex z : points) {
+                Complex expected = f.getValue(z);
+                f.evaluate(z.getRe(), z.getIm(), out);
+                assertEquals(f_z + " at " + z, expected.getRe(), out[0], 0);
+                assertEquals(f_z + " at " + z, expected.getIm(), out[1], 0);
+                Complex[] valueAndDerivative = f.getValueAndDerivative(z);
+                f.evaluateWithDerivative(z.getRe(), z.getIm(), out);
+                assertEquals(f_z + " at " + z, valueAndDerivative[0].getRe(), out[0], 0);
+                assertEquals(f_z + " at " + z, valueAndDerivative[0].getIm(), out[1], 0);
+                assertEquals(f_z + " at " + z, valueAndDerivative[1].getRe(), out[2], 0);
+                assertEquals(f_z + " at " + z, valueAndDerivative[1].getIm(), out[3], 0);
+            }
+        }
+        /** ...and give NaN instead of throwing where it is not */
+        String[] undefined = { "1/z", "z/sin(z)", "tanh(z)/z", "atan(z-i)" };
+        for (String f_z : undefined) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            f.evaluate(0, 0, out);
+            assertTrue(f_z, Double.isNaN(out[0]) && Double.isNaN(out[1]));
+            f.evaluateWithDerivative(0, 0, out);
+            assertTrue(f_z, Double.isNaN(out[0]) && Double.isNaN(out[2]));
+        }
+    }
+
+    @Test
+    public void testCompiled_20() throws CalculatorException {
+        /** (z-1)*(z+2)^2 = z^3+3z^2-4 */
+        Complex[] coefficients = new CompiledComplexFunction("(z-1)*(z+2)^2").polynomialCoefficients();
+        double[] expected = { -4, 0, 3, 1 };
+        assertEquals(expected.length, coefficients.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], coefficients[i].getRe(), 1e-12);
+            assertEquals(0, coefficients[i].getIm(), 1e-12);
+        }
+        coefficients = new CompiledComplexFunction("z^3/2-i+z-z").polynomialCoefficients();
+        assertEquals(4, coefficients.length);
+        assertEquals(-1, coefficients[0].getIm(), 0);
+        assertEquals(0, Complex.abs(coefficients[1]), 0);
+        assertEquals(0.5, coefficients[3].getRe(), 0);
+        assertEquals(1, new CompiledComplexFunction("z*(z-2)-z^2+2*z").polynomialCoefficients().length);
+        String[] notPolynomials = { "sin(z)", "1/z", "z^(0.5)", "e^z", "z^z", "z/(z-1)" };
+        for (String f_z : notPolynomials) {
+            assertTrue(f_z, new CompiledComplexFunction(f_z).polynomialCoefficients() == null);
+        }
+    }
+
+    @Test
+    public void testCompiled_21() throws CalculatorException {
+        /** Batches of different sizes on the same thread give the same values as single points */
+        CompiledComplexFunction f = new CompiledComplexFunction("(z^3-2*z)/(z+i)+sin(z)*e^z");
+        int[] sizes = { 3, 1000, 7, 40000, 500 };
+        for (int n : sizes) {
+            double[] re = new double[n];
+            double[] im = new double[n];
+            for (int i = 0; i < n; i++) {
+                re[i] = Math.cos(i + n) * 2;
+                im[i] = Math.sin(3 * i - n);
+            }
+            double[] outRe = new double[n];
+            double[] outIm = new double[n];
+            f.evaluate(re, im, outRe, outIm, n);
+            double[] out = new double[2];
+            for (int i = 0; i < n; i++) {
+                f.evaluate(re[i], im[i], out);
+                assertEquals(n + " " + i, out[0], outRe[i], 0);
+                assertEquals(n + " " + i, out[1], outIm[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void testCompiled_22() throws CalculatorException {
+        /** Functions evaluated by their generated kernels give the same values, NaN where undefined */
+        Complex[] undefined = { new Complex(0, 0), new Complex(0, 2), new Complex(2, 0) };
+        int n = points.length + undefined.length;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            Complex z = i < points.length ? points[i] : undefined[i - points.length];
+            re[i] = z.getRe();
+            im[i] = z.getIm();
+        }
+        double[] outRe = new double[n];
+        double[] outIm = new double[n];
+        double[] jitRe = new double[n];
+        double[] jitIm = new double[n];
+        double[] out = new double[2];
+        double[] jitOut = new double[2];
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            CompiledComplexFunction jit = new CompiledComplexFunction(f_z, "z", true, true);
+            f.evaluate(re, im, outRe, outIm, n);
+            jit.evaluate(re, im, jitRe, jitIm, n);
+            for (int i = 0; i < n; i++) {
+                f.evaluate(re[i], im[i], out);
+                jit.evaluate(re[i], im[i], jitOut);
+                assertEquals(f_z + " " + i, outRe[i], jitRe[i], 0);
+                assertEquals(f_z + " " + i, outIm[i], jitIm[i], 0);
+                assertEquals(f_z + " " + i, out[0], jitOut[0], 0);
+                assertEquals(f_z + " " + i, out[1], jitOut[1], 0);
+            }
+        }
+    }
+}
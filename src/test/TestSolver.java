@@ -1,11 +1,17 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 
 import org.junit.Test;
 
+import algorithm.solver.Root;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.SolveResult;
 import algorithm.solver.Solver;
 import algorithm.solver.SolverAccuracy;
+import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
 import algorithm.parser.function.Complex;
 
 /**
@@ -994,4 +1000,294 @@ public class TestSolver {
             assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.00001);
         }
     }
+
+    @Test
+    public void testSolver_70() {
+        /** A multiple root is returned once */
+        String f_z = "(z-1)^2*(z+2)";
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(-2, 0), new Complex(1, 0) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSolver_71() {
+        String f_z = "(z-1-i)^3";
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(1, 1) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.00001);
+        }
+    }
+
+    @Test
+    public void testSolver_72() {
+        /** Zeros minus poles, counted with multiplicities */
+        Solver square = new Solver(new Complex(-3, -3), new Complex(3, -3), new Complex(3, 3), new Complex(-3, 3),
+                SolverAccuracy.LOW);
+        assertEquals(3, square.countZerosMinusPoles("(z-1)^2*(z+2)"));
+        assertEquals(-2, square.countZerosMinusPoles("(z-1)^2/((z+1)*(z-2j)^3)"));
+        assertEquals(0, square.countZerosMinusPoles("e^z"));
+    }
+
+    @Test
+    public void testSolver_73() throws CalculatorException {
+        /** Poles are reported separately */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("1/(z^2+1)");
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(0, -1), new Complex(0, 1) };
+
+        SolveResult result = Solver.solve(range, f_z, acc, SolveOptions.builder().findPoles(true).build());
+        ArrayList<Root> poles = result.getPoles();
+        assertEquals(0, result.getRoots().size());
+        assertEquals(expected.length, poles.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), poles.get(i).getValue().getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), poles.get(i).getValue().getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSolver_74() throws CalculatorException {
+        CompiledComplexFunction f_z = new CompiledComplexFunction("tan(z)");
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(-Math.PI, 0), new Complex(0, 0), new Complex(Math.PI, 0) };
+        Complex[] expectedPoles = { new Complex(-1.5 * Math.PI, 0), new Complex(-0.5 * Math.PI, 0),
+                new Complex(0.5 * Math.PI, 0), new Complex(1.5 * Math.PI, 0) };
+
+        SolveResult result = Solver.solve(range, f_z, acc, SolveOptions.builder().findPoles(true).build());
+        ArrayList<Root> solutions = result.getRoots();
+        ArrayList<Root> poles = result.getPoles();
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getValue().getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getValue().getIm(), 0.00001);
+        }
+        assertEquals(expectedPoles.length, poles.size());
+        for (int i = 0; i < expectedPoles.length; i++) {
+            assertEquals(expectedPoles[i].getRe(), poles.get(i).getValue().getRe(), 0.00001);
+            assertEquals(expectedPoles[i].getIm(), poles.get(i).getValue().getIm(), 0.00001);
+        }
+    }
+
+    @Test
+    public void testSolver_75() throws CalculatorException {
+        /** Multiple roots are returned once, with their multiplicities */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("(z-1)^3*(z+2)*(z^2+1)^2");
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(-2, 0), new Complex(0, -1), new Complex(0, 1), new Complex(1, 0) };
+        int[] multiplicities = { 1, 2, 2, 3 };
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(expected.length, roots.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), roots.get(i).getValue().getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), roots.get(i).getValue().getIm(), 0.00001);
+            assertEquals(multiplicities[i], roots.get(i).getMultiplicity());
+        }
+    }
+
+    @Test
+    public void testSolver_76() throws CalculatorException {
+        /** Orders of poles */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("(z-2)/(z-1-i)^2");
+        SolverAccuracy acc = SolverAccuracy.MED;
+
+        SolveResult result = Solver.solve(range, f_z, acc,
+                SolveOptions.builder().sequentialSideRatio(1.0 / 64).findPoles(true).build());
+        ArrayList<Root> roots = result.getRoots();
+        ArrayList<Root> poles = result.getPoles();
+        assertEquals(1, roots.size());
+        assertEquals(2, roots.get(0).getValue().getRe(), 0.0001);
+        assertEquals(1, roots.get(0).getMultiplicity());
+        assertEquals(1, poles.size());
+        assertEquals(1, poles.get(0).getValue().getRe(), 0.0001);
+        assertEquals(1, poles.get(0).getValue().getIm(), 0.0001);
+        assertEquals(2, poles.get(0).getMultiplicity());
+    }
+
+    @Test
+    public void testSolver_77() throws CalculatorException {
+        /** Many roots, each one reported once */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("sin(10*z)");
+        SolverAccuracy acc = SolverAccuracy.MED;
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(31, roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            assertEquals((i - 15) * Math.PI / 10, roots.get(i).getValue().getRe(), 0.0001);
+            assertEquals(0, roots.get(i).getValue().getIm(), 0.0001);
+            assertEquals(1, roots.get(i).getMultiplicity());
+            assertTrue(roots.get(i).getClusterSize() >= 1);
+        }
+    }
+
+    @Test
+    public void testSolver_78() throws CalculatorException {
+        /** Roots close to each other are told apart deep down the quadtree */
+        String f_z = "(z-1)*(z-1-0.001*i)*(z+3)";
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(-3, 0), new Complex(1, 0), new Complex(1, 0.001) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.00001);
+        }
+    }
+
+    @Test
+    public void testSolver_79() throws CalculatorException {
+        /** Newton converges to simple and multiple roots without further splitting */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("(z-0.3)^2*(z+2*i)*(z^2-2)");
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(-Math.sqrt(2), 0), new Complex(0, -2), new Complex(0.3, 0),
+                new Complex(Math.sqrt(2), 0) };
+        int[] multiplicities = { 1, 1, 2, 1 };
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(expected.length, roots.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), roots.get(i).getValue().getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), roots.get(i).getValue().getIm(), 0.00001);
+            assertEquals(multiplicities[i], roots.get(i).getMultiplicity());
+        }
+    }
+
+    @Test
+    public void testSolver_80() throws CalculatorException {
+        /** Newton leaves the square from the middle of most squares, which are split instead */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("1/z+z^9");
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(10, roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            assertEquals(1, Complex.abs(roots.get(i).getValue()), 0.00001);
+            assertEquals(1, roots.get(i).getMultiplicity());
+            assertEquals(-1, Complex.pow(roots.get(i).getValue(), new Complex(10, 0)).getRe(), 0.001);
+        }
+    }
+
+    @Test
+    public void testSolver_81() throws CalculatorException {
+        /** Newton from 0 cycles between 0 and 1 until the iteration cap is hit */
+        String f_z = "z^3-2*z+2";
+        SolverAccuracy acc = SolverAccuracy.HIGH;
+        Complex[] expected = { new Complex(-1.76929, 0), new Complex(0.88465, -0.58974),
+                new Complex(0.88465, 0.58974) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.00001);
+        }
+    }
+
+    @Test
+    public void testSolver_82() throws CalculatorException {
+        /** Newton steps which are not numbers (f' underflows to 0 near 0) are rejected */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("z^100-1");
+        SolverAccuracy acc = SolverAccuracy.MED;
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(100, roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            assertEquals(1, Complex.abs(roots.get(i).getValue()), 0.0001);
+            assertEquals(1, roots.get(i).getMultiplicity());
+        }
+    }
+
+    @Test
+    public void testSolver_83() throws CalculatorException {
+        /** A zero next to two poles is found even though their square counts -1 */
+        String f_z = "(z-0.1-0.05i)/((z-0.2-0.05i)*(z-0.3-0.05i))";
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(0.1, 0.05) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSolver_84() throws CalculatorException {
+        /** The same on the real axis, where the zero and the poles lie on grid lines */
+        String f_z = "(z-0.1)/((z-0.2)*(z-0.3))";
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(0.1, 0) };
+
+        ArrayList<Complex> solutions = Solver.solve(range, f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSolver_85() throws CalculatorException {
+        /**
+         * Neighbouring squares share their samples through the solve's cache, while a
+         * square on its own evaluates all of them - both must count the same roots
+         */
+        CompiledComplexFunction f_z = new CompiledComplexFunction(
+                "(z-0.3123-0.25*i)^2*(z-0.4+1.5*i)*(z-1.7+0.2*i)*(z+0.5+0.5*i)");
+        SolverAccuracy acc = SolverAccuracy.MED;
+        int side = 4;
+        int range = 2;
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        int total = 0;
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                double left = -range + column;
+                double bottom = -range + row;
+                Solver square = new Solver(new Complex(left, bottom), new Complex(left + 1, bottom),
+                        new Complex(left + 1, bottom + 1), new Complex(left, bottom + 1), acc);
+                int inside = 0;
+                for (Root root : roots) {
+                    Complex z = root.getValue();
+                    if (z.getRe() > left && z.getRe() < left + 1 && z.getIm() > bottom && z.getIm() < bottom + 1) {
+                        inside += root.getMultiplicity();
+                    }
+                }
+                assertEquals(inside, square.countZerosMinusPoles(f_z));
+                total += inside;
+            }
+        }
+        assertEquals(5, total);
+    }
+
+    @Test
+    public void testSolver_86() throws CalculatorException {
+        /** Roots a thousandth apart are told apart at MED, each keeping its own multiplicity */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("(z-1)*(z-1.001)*z^3");
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(0, 0), new Complex(1, 0), new Complex(1.001, 0) };
+        int[] multiplicities = { 3, 1, 1 };
+
+        ArrayList<Root> roots = Solver.solve(range, f_z, acc, SolveOptions.DEFAULT).getRoots();
+        assertEquals(expected.length, roots.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), roots.get(i).getValue().getRe(), 0.00001);
+            assertEquals(expected[i].getIm(), roots.get(i).getValue().getIm(), 0.00001);
+            assertEquals(multiplicities[i], roots.get(i).getMultiplicity());
+        }
+    }
 }
@@ -185,4 +185,34 @@ public class TestSolverAuto {
             assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.00001);
         }
     }
+
+    @Test
+    public void testSolverAuto_13() {
+        /** Polynomials are solved whatever the maximum range is */
+        String f_z = "(z-250)*(z+3*i)";
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(0, -3), new Complex(250, 0) };
+
+        ArrayList<Complex> solutions = Solver.solve(f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testSolverAuto_14() {
+        /** Not a polynomial, the range is found by doubling and bisection */
+        String f_z = "(z-37+2*i)*e^(z/16)";
+        SolverAccuracy acc = SolverAccuracy.MED;
+        Complex[] expected = { new Complex(37, -2) };
+
+        ArrayList<Complex> solutions = Solver.solve(f_z, acc);
+        assertEquals(expected.length, solutions.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRe(), solutions.get(i).getRe(), 0.0001);
+            assertEquals(expected[i].getIm(), solutions.get(i).getIm(), 0.0001);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
+import algorithm.solver.Root;
+import algorithm.solver.SolveBudget;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.SolveResult;
+import algorithm.solver.Solver;
+import algorithm.solver.SolverAccuracy;
+import algorithm.solver.SolverConfig;
+
+/**
+ * Test Solver with a SolveBudget. A budget which does not run out must not
+ * change the solutions, one which does must give a partial result with only
+ * confirmed roots.
+ *
+ * @Author Piotr Machura
+ */
+public class TestSolverBudget {
+    static final int range = 5;
+
+    private static void assertContains(ArrayList<Root> all, Root root) {
+        for (Root r : all) {
+            if (r.getValue().getRe() == root.getValue().getRe() && r.getValue().getIm() == root.getValue().getIm()) {
+                return;
+            }
+        }
+        assertTrue(root + " is not a root", false);
+    }
+
+    @Test
+    public void testSolverBudget_1() throws CalculatorException {
+        String[] functions = { "z", "sin(z)", "z^3-e^z", "1/sin(z)", "(z-1)^3*(z+2)" };
+        for (String f : functions) {
+            CompiledComplexFunction f_z = new CompiledComplexFunction(f);
+            ArrayList<Root> expected = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+            SolveResult result = Solver.solve(range, f_z, SolverAccuracy.MED,
+                    SolveOptions.builder().budget(SolveBudget.UNLIMITED).build());
+            assertTrue(f, !result.isPartial());
+            assertTrue(f, result.getUnresolved().isEmpty());
+            assertTrue(f, result.getEvaluations() > 0);
+            assertEquals(f, expected.size(), result.getRoots().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(f, expected.get(i).getValue().getRe(), result.getRoots().get(i).getValue().getRe(), 0);
+                assertEquals(f, expected.get(i).getValue().getIm(), result.getRoots().get(i).getValue().getIm(), 0);
+                assertEquals(f, expected.get(i).getMultiplicity(), result.getRoots().get(i).getMultiplicity());
+            }
+        }
+    }
+
+    @Test
+    public void testSolverBudget_2() throws CalculatorException {
+        /** The 64 starting squares of a fixed initial grid are split twice too many */
+        SolveResult result = Solver.solve(range, new CompiledComplexFunction("sin(z)"), SolverAccuracy.MED,
+                SolveOptions.builder().budget(new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE, 2))
+                        .config(SolverConfig.builder().adaptiveInitialGrid(false).build()).build());
+        assertTrue(result.isPartial());
+        assertEquals(0, result.getRoots().size());
+        assertEquals(64, result.getUnresolved().size());
+    }
+
+    @Test
+    public void testSolverBudget_3() throws CalculatorException {
+        CompiledComplexFunction f_z = new CompiledComplexFunction("sin(10*z)");
+        ArrayList<Root> all = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+        SolveResult result = Solver.solve(range, f_z, SolverAccuracy.MED,
+                SolveOptions.builder().budget(new SolveBudget(Long.MAX_VALUE, 2000, Integer.MAX_VALUE)).build());
+        assertTrue(result.isPartial());
+        assertTrue(!result.getUnresolved().isEmpty());
+        assertTrue(result.getRoots().size() < all.size());
+        for (Root root : result.getRoots()) {
+            assertContains(all, root);
+        }
+    }
+
+    @Test
+    public void testSolverBudget_4() throws CalculatorException {
+        /** Time runs out right away, in parallel too */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("sin(z)");
+        SolverConfig fixedGrid = SolverConfig.builder().adaptiveInitialGrid(false).build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SolveResult result = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.builder().pool(pool)
+                    .budget(new SolveBudget(0, Long.MAX_VALUE, Integer.MAX_VALUE)).config(fixedGrid).build());
+            assertTrue(result.isPartial());
+            assertEquals(0, result.getRoots().size());
+            assertEquals(64, result.getUnresolved().size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,439 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import algorithm.parser.function.CompiledComplexFunction;
+import algorithm.parser.function.Complex;
+import algorithm.solver.Root;
+import algorithm.solver.SearchOrder;
+import algorithm.solver.SolveResult;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.Solver;
+import algorithm.solver.SolverAccuracy;
+import algorithm.solver.SolverConfig;
+import algorithm.solver.SolverDefaults;
+import algorithm.solver.WindingKernel;
+
+/**
+ * Test SolverConfig. Differently tuned solves have to find the same roots, also
+ * when they run at the same time.
+ *
+ * @Author Piotr Machura
+ */
+public class TestSolverConfig {
+    static final int range = 5;
+
+    @Test
+    public void testSolverConfig_1() {
+        SolverConfig config = SolverConfig.builder().build();
+        assertEquals(SolverDefaults.AUTO_RANGE_START, config.getAutoRangeStart());
+        assertEquals(SolverDefaults.STEPS_PER_SIDELENGTH, config.getStepsPerSidelength());
+        assertEquals(SolverDefaults.MAX_LEGAL_ABS_OF_ROOT, config.getMaxLegalAbsOfRoot(), 0);
+        assertSame(SolverDefaults.WINDING_KERNEL, config.getWindingKernel());
+        SolverConfig changed = config.toBuilder().stepsPerSidelength(100).build();
+        assertEquals(100, changed.getStepsPerSidelength());
+        assertEquals(config.getMinLegalWindingNumberRatio(), changed.getMinLegalWindingNumberRatio(), 0);
+        assertSame(SolverConfig.DEFAULT, Solver.getDefaultConfig());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSolverConfig_2() {
+        SolverConfig.builder().stepsPerSidelength(0).build();
+    }
+
+    @Test
+    public void testSolverConfig_3() throws Exception {
+        File solverrc = File.createTempFile("solverrc", null);
+        solverrc.deleteOnExit();
+        OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(solverrc),
+                Charset.forName("UTF-8").newEncoder());
+        osw.write("10 2 50 1.5 300 0.9 0.5 ");
+        osw.close();
+        SolverConfig config = SolverConfig.load(solverrc);
+        assertEquals(10, config.getAutoRangeStart());
+        assertEquals(2, config.getAutoRangeIncrement());
+        assertEquals(50, config.getAutoRangeMax());
+        assertEquals(1.5, config.getMaxLegalDeltaphiRatio(), 0);
+        assertEquals(300, config.getStepsPerSidelength());
+        assertEquals(0.9, config.getMinLegalWindingNumberRatio(), 0);
+        assertEquals(0.5, config.getMaxLegalAbsOfRoot(), 0);
+        /** Loading a config does not change the default one */
+        assertSame(SolverConfig.DEFAULT, Solver.getDefaultConfig());
+    }
+
+    @Test
+    public void testSolverConfig_4() throws Exception {
+        final CompiledComplexFunction f_z = new CompiledComplexFunction("z^3-e^z");
+        final ArrayList<Root> expected = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+        SolverConfig[] configs = { SolverConfig.DEFAULT,
+                SolverConfig.builder().windingKernel(WindingKernel.PHASE).adaptiveStepping(false).build(),
+                SolverConfig.builder().adaptiveStepping(false).stepsPerSidelength(400).build(),
+                SolverConfig.builder().stepsPerSidelength(100).build() };
+        ExecutorService exec = Executors.newFixedThreadPool(configs.length);
+        try {
+            ArrayList<Future<ArrayList<Complex>>> results = new ArrayList<Future<ArrayList<Complex>>>();
+            for (final SolverConfig config : configs) {
+                results.add(exec.submit(new Callable<ArrayList<Complex>>() {
+                    @Override
+                    public ArrayList<Complex> call() {
+                        ArrayList<Complex> roots = new ArrayList<Complex>();
+                        for (Root root : Solver.solve(range, f_z, SolverAccuracy.MED,
+                                SolveOptions.builder().config(config).build()).getRoots()) {
+                            roots.add(root.getValue());
+                        }
+                        return roots;
+                    }
+                }));
+            }
+            for (Future<ArrayList<Complex>> result : results) {
+                ArrayList<Complex> solutions = result.get();
+                assertEquals(expected.size(), solutions.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getValue().getRe(), solutions.get(i).getRe(), 0.001);
+                    assertEquals(expected.get(i).getValue().getIm(), solutions.get(i).getIm(), 0.001);
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    @Test
+    public void testSolverConfig_5() throws Exception {
+        /** The automatic range starts where the config says */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("(z-12)*e^(z/4)");
+        assertTrue(Solver.solve(f_z, SolverAccuracy.MED, SolveOptions.builder()
+                .config(SolverConfig.builder().autoRangeStart(5).autoRangeMax(9).build()).build()).getRoots()
+                .isEmpty());
+        ArrayList<Root> solutions = Solver.solve(f_z, SolverAccuracy.MED,
+                SolveOptions.builder().config(SolverConfig.builder().autoRangeStart(15).build()).build()).getRoots();
+        assertEquals(1, solutions.size());
+        assertEquals(12, solutions.get(0).getValue().getRe(), 0.001);
+    }
+
+    @Test
+    public void testSolverConfig_6() throws Exception {
+        /** Breadth-first search finds the same roots, reporting its memory per level */
+        SolverConfig breadthFirst = SolverConfig.builder().searchOrder(SearchOrder.BREADTH_FIRST).build();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        String[] functions = { "z^3-e^z", "sin(10*z)", "(z-1)^3*(z+2)*(z^2+1)^2", "z/(e^z-e)" };
+        for (String function : functions) {
+            CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+            ArrayList<Root> expected = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+            for (ForkJoinPool on : new ForkJoinPool[] { null, pool }) {
+                SolveResult result = Solver.solve(range, f_z, SolverAccuracy.MED,
+                        SolveOptions.builder().pool(on).config(breadthFirst).build());
+                ArrayList<Root> roots = result.getRoots();
+                assertEquals(function, expected.size(), roots.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(function, expected.get(i).getValue().getRe(), roots.get(i).getValue().getRe(), 0.001);
+                    assertEquals(function, expected.get(i).getValue().getIm(), roots.get(i).getValue().getIm(), 0.001);
+                    assertEquals(function, expected.get(i).getMultiplicity(), roots.get(i).getMultiplicity());
+                }
+                long[] memory = result.getLevelMemory();
+                assertTrue(function, memory.length > 1);
+                assertTrue(function, memory[memory.length - 1] > 0);
+            }
+        }
+        pool.shutdown();
+        assertEquals(0, Solver.solve(range, new CompiledComplexFunction("z"), SolverAccuracy.MED,
+                SolveOptions.builder().config(SolverConfig.DEFAULT).build()).getLevelMemory().length);
+    }
+
+    @Test
+    public void testSolverConfig_7() throws Exception {
+        /** Finer initial grids find the same roots */
+        String[] functions = { "z^3-e^z", "sin(10*z)", "(z-4)/sin(z)" };
+        for (String function : functions) {
+            CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+            ArrayList<Root> expected = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+            for (int size : new int[] { 16, 32 }) {
+                ArrayList<Root> roots = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.builder()
+                        .config(SolverConfig.builder().initialGridSize(size).build()).build()).getRoots();
+                assertEquals(function, expected.size(), roots.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(function, expected.get(i).getValue().getRe(), roots.get(i).getValue().getRe(), 0.001);
+                    assertEquals(function, expected.get(i).getValue().getIm(), roots.get(i).getValue().getIm(), 0.001);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSolverConfig_8() {
+        /** Squares of the initial grid have to be dyadic */
+        SolverConfig.builder().initialGridSize(6).build();
+    }
+
+    @Test
+    public void testSolverConfig_9() throws Exception {
+        /** The adaptive initial grid is coarse for calm functions and fine enough for wild ones */
+        SolverConfig fixedGrid = SolverConfig.builder().adaptiveInitialGrid(false).build();
+        String[] functions = { "z", "z^3-e^z", "sin(20*z)", "cos(z^2)", "e^(z^2)-z", "(z-4)/sin(z)" };
+        for (int k = 0; k < functions.length; k++) {
+            String function = functions[k];
+            CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+            SolveResult fixed = Solver.solve(range, f_z, SolverAccuracy.MED,
+                    SolveOptions.builder().config(fixedGrid).build());
+            SolveResult adaptive = Solver.solve(range, f_z, SolverAccuracy.MED,
+                    SolveOptions.builder().config(SolverConfig.DEFAULT).build());
+            assertEquals(function, fixed.getRoots().size(), adaptive.getRoots().size());
+            for (int i = 0; i < fixed.getRoots().size(); i++) {
+                assertEquals(function, fixed.getRoots().get(i).getValue().getRe(),
+                        adaptive.getRoots().get(i).getValue().getRe(), 0.001);
+                assertEquals(function, fixed.getRoots().get(i).getValue().getIm(),
+                        adaptive.getRoots().get(i).getValue().getIm(), 0.001);
+            }
+            if (k < 2) {
+                /** Calm entire functions start from fewer squares */
+                assertTrue(function, adaptive.getEvaluations() < fixed.getEvaluations());
+            }
+        }
+    }
+
+    @Test
+    public void testSolverConfig_10() throws Exception {
+        /** Roots on the lines of the grid (ex. on the axes) are found exactly once by both kernels */
+        for (WindingKernel kernel : WindingKernel.values()) {
+            SolveOptions options = SolveOptions.builder()
+                    .config(SolverConfig.builder().windingKernel(kernel).adaptiveStepping(false).build()).build();
+            ArrayList<Root> roots = Solver.solve(range, new CompiledComplexFunction("(z-1)*(z-1.001)"),
+                    SolverAccuracy.HIGH, options).getRoots();
+            assertEquals(kernel.name(), 2, roots.size());
+            assertEquals(kernel.name(), 1, roots.get(0).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 1.001, roots.get(1).getValue().getRe(), 0);
+            roots = Solver.solve(range, new CompiledComplexFunction("sin(z)"), SolverAccuracy.HIGH, options)
+                    .getRoots();
+            assertEquals(kernel.name(), 3, roots.size());
+            assertEquals(kernel.name(), -3.14159, roots.get(0).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 0, roots.get(1).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 3.14159, roots.get(2).getValue().getRe(), 0);
+            roots = Solver.solve(2, new CompiledComplexFunction("z^20-1"), SolverAccuracy.LOW, options).getRoots();
+            assertEquals(kernel.name(), 20, roots.size());
+            for (Root root : roots) {
+                assertEquals(kernel.name(), 1, root.getMultiplicity());
+                assertEquals(kernel.name(), 1, Complex.abs(root.getValue()), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void testSolverConfig_11() throws Exception {
+        /** So are roots on the vertices of the grid, also multiple ones */
+        for (WindingKernel kernel : WindingKernel.values()) {
+            SolveOptions options = SolveOptions.builder()
+                    .config(SolverConfig.builder().windingKernel(kernel).adaptiveStepping(false).build()).build();
+            ArrayList<Root> roots = Solver.solve(4, new CompiledComplexFunction("z*(z-1)*(z+1)*(z-i)"),
+                    SolverAccuracy.HIGH, options).getRoots();
+            assertEquals(kernel.name(), 4, roots.size());
+            assertEquals(kernel.name(), -1, roots.get(0).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 0, Complex.abs(roots.get(1).getValue()), 0);
+            assertEquals(kernel.name(), 1, roots.get(2).getValue().getIm(), 0);
+            assertEquals(kernel.name(), 1, roots.get(3).getValue().getRe(), 0);
+            roots = Solver.solve(range, new CompiledComplexFunction("z^2*(z-2.5-2.5i)"), SolverAccuracy.HIGH,
+                    options).getRoots();
+            assertEquals(kernel.name(), 2, roots.size());
+            assertEquals(kernel.name(), 0, Complex.abs(roots.get(0).getValue()), 0);
+            assertEquals(kernel.name(), 2, roots.get(0).getMultiplicity());
+            assertEquals(kernel.name(), 2.5, roots.get(1).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 2.5, roots.get(1).getValue().getIm(), 0);
+            roots = Solver.solve(range, new CompiledComplexFunction("(z-1.25)^3*(z+2.5i)"), SolverAccuracy.MED,
+                    options).getRoots();
+            assertEquals(kernel.name(), 2, roots.size());
+            assertEquals(kernel.name(), -2.5, roots.get(0).getValue().getIm(), 0);
+            assertEquals(kernel.name(), 1.25, roots.get(1).getValue().getRe(), 0);
+            assertEquals(kernel.name(), 3, roots.get(1).getMultiplicity());
+        }
+    }
+
+    @Test
+    public void testSolverConfig_12() throws Exception {
+        /** Adaptive stepping finds the same roots as fixed stepping with far fewer evaluations */
+        String[] functions = { "z^2+1", "sin(z)", "z^3-e^z", "(z-1)*(z-1.001)", "(z-1)^3*(z+2)" };
+        for (WindingKernel kernel : WindingKernel.values()) {
+            SolverConfig fixedSteps = SolverConfig.builder().windingKernel(kernel).adaptiveStepping(false).build();
+            SolverConfig adaptiveSteps = fixedSteps.toBuilder().adaptiveStepping(true).build();
+            for (String function : functions) {
+                CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+                SolveResult fixed = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                        SolveOptions.builder().config(fixedSteps).build());
+                SolveResult adaptive = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                        SolveOptions.builder().config(adaptiveSteps).build());
+                assertEquals(function, fixed.getRoots().size(), adaptive.getRoots().size());
+                for (int i = 0; i < fixed.getRoots().size(); i++) {
+                    assertEquals(function, fixed.getRoots().get(i).getValue().getRe(),
+                            adaptive.getRoots().get(i).getValue().getRe(), 0.00001);
+                    assertEquals(function, fixed.getRoots().get(i).getValue().getIm(),
+                            adaptive.getRoots().get(i).getValue().getIm(), 0.00001);
+                    assertEquals(function, fixed.getRoots().get(i).getMultiplicity(),
+                            adaptive.getRoots().get(i).getMultiplicity());
+                }
+                assertTrue(function, 4 * adaptive.getEvaluations() < fixed.getEvaluations());
+            }
+            ArrayList<Root> roots = Solver.solve(2, new CompiledComplexFunction("z^20-1"), SolverAccuracy.LOW,
+                    SolveOptions.builder().config(adaptiveSteps).build()).getRoots();
+            assertEquals(kernel.name(), 20, roots.size());
+            for (Root root : roots) {
+                assertEquals(kernel.name(), 1, root.getMultiplicity());
+                assertEquals(kernel.name(), 1, Complex.abs(root.getValue()), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void testSolverConfig_13() throws Exception {
+        /** Adaptive steps turn f by less than maxLegalDeltaphiRatio lets deltaPhi() tell */
+        CompiledComplexFunction f_z = new CompiledComplexFunction("z^2+1");
+        SolverConfig config = SolverConfig.builder().adaptiveStepping(true).build();
+        SolveResult coarse = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                SolveOptions.builder().config(config).build());
+        SolveResult fine = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                SolveOptions.builder().config(config.toBuilder().maxLegalDeltaphiRatio(1.9).build()).build());
+        assertEquals(coarse.getRoots().size(), fine.getRoots().size());
+        for (int i = 0; i < coarse.getRoots().size(); i++) {
+            assertEquals(coarse.getRoots().get(i).getValue().getIm(), fine.getRoots().get(i).getValue().getIm(), 0);
+        }
+        assertTrue(fine.getEvaluations() > coarse.getEvaluations());
+    }
+
+    @Test
+    public void testSolverConfig_14() throws Exception {
+        /** Multiple roots and close pairs on the axes, between two samples, keep their multiplicities */
+        String[] functions = { "(z-0.3123)^2*(z+2*i)", "(z-0.3123*i)^2", "(z-0.7771)^4", "(z-1.0063)*(z-1.0073)" };
+        double[][] expected = { { 0, -2, 1, 0.3123, 0, 2 }, { 0, 0.3123, 2 }, { 0.7771, 0, 4 },
+                { 1.0063, 0, 1, 1.0073, 0, 1 } };
+        for (WindingKernel kernel : WindingKernel.values()) {
+            for (boolean adaptiveStepping : new boolean[] { false, true }) {
+                SolveOptions options = SolveOptions.builder().config(SolverConfig.builder().windingKernel(kernel)
+                        .adaptiveStepping(adaptiveStepping).build()).build();
+                for (int k = 0; k < functions.length; k++) {
+                    String message = kernel.name() + " " + adaptiveStepping + " " + functions[k];
+                    ArrayList<Root> roots = Solver.solve(range, new CompiledComplexFunction(functions[k]),
+                            SolverAccuracy.HIGH, options).getRoots();
+                    assertEquals(message, expected[k].length / 3, roots.size());
+                    for (int i = 0; i < roots.size(); i++) {
+                        assertEquals(message, expected[k][3 * i], roots.get(i).getValue().getRe(), 0);
+                        assertEquals(message, expected[k][3 * i + 1], roots.get(i).getValue().getIm(), 0);
+                        assertEquals(message, (int) expected[k][3 * i + 2], roots.get(i).getMultiplicity());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSolverConfig_15() throws Exception {
+        /** The optional fields follow the 7 required ones, the ones left out keep their defaults */
+        File solverrc = File.createTempFile("solverrc", null);
+        solverrc.deleteOnExit();
+        OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(solverrc),
+                Charset.forName("UTF-8").newEncoder());
+        osw.write("10 2 50 1.5 300 0.9 0.5 QUADRANT true BREADTH_FIRST 16 false false ");
+        osw.close();
+        SolverConfig config = SolverConfig.load(solverrc);
+        assertEquals(300, config.getStepsPerSidelength());
+        assertEquals(0.5, config.getMaxLegalAbsOfRoot(), 0);
+        assertSame(WindingKernel.QUADRANT, config.getWindingKernel());
+        assertEquals(true, config.isAdaptiveStepping());
+        assertSame(SearchOrder.BREADTH_FIRST, config.getSearchOrder());
+        assertEquals(16, config.getInitialGridSize());
+        assertEquals(false, config.isAdaptiveInitialGrid());
+        assertEquals(false, config.isDeriveLastChild());
+
+        osw = new OutputStreamWriter(new FileOutputStream(solverrc), Charset.forName("UTF-8").newEncoder());
+        osw.write("10 2 50 1.5 300 0.9 0.5 QUADRANT true");
+        osw.close();
+        config = SolverConfig.load(solverrc);
+        assertSame(WindingKernel.QUADRANT, config.getWindingKernel());
+        assertEquals(true, config.isAdaptiveStepping());
+        assertSame(SolverDefaults.SEARCH_ORDER, config.getSearchOrder());
+        assertEquals(SolverDefaults.INITIAL_GRID_SIZE, config.getInitialGridSize());
+        assertEquals(SolverDefaults.ADAPTIVE_INITIAL_GRID, config.isAdaptiveInitialGrid());
+        assertEquals(SolverDefaults.DERIVE_LAST_CHILD, config.isDeriveLastChild());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSolverConfig_16() throws Exception {
+        File solverrc = File.createTempFile("solverrc", null);
+        solverrc.deleteOnExit();
+        OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(solverrc),
+                Charset.forName("UTF-8").newEncoder());
+        osw.write("10 2 50 1.5 300 0.9 0.5 PHASE yes");
+        osw.close();
+        SolverConfig.load(solverrc);
+    }
+
+    @Test
+    public void testSolverConfig_17() throws Exception {
+        /** Deriving the last child's winding number finds the same roots with fewer evaluations */
+        String[] functions = { "z^2+1", "sin(z)", "z^3-e^z", "(z-1)*(z-1.001)", "z^5-1", "tan(z)" };
+        for (SearchOrder order : SearchOrder.values()) {
+            SolverConfig derived = SolverConfig.builder().searchOrder(order).build();
+            SolverConfig computed = derived.toBuilder().deriveLastChild(false).build();
+            for (String function : functions) {
+                CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+                SolveResult withDerived = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                        SolveOptions.builder().config(derived).build());
+                SolveResult withComputed = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                        SolveOptions.builder().config(computed).build());
+                assertEquals(function, withComputed.getRoots().size(), withDerived.getRoots().size());
+                for (int i = 0; i < withComputed.getRoots().size(); i++) {
+                    assertEquals(function, withComputed.getRoots().get(i).getValue().getRe(),
+                            withDerived.getRoots().get(i).getValue().getRe(), 0.00001);
+                    assertEquals(function, withComputed.getRoots().get(i).getValue().getIm(),
+                            withDerived.getRoots().get(i).getValue().getIm(), 0.00001);
+                    assertEquals(function, withComputed.getRoots().get(i).getMultiplicity(),
+                            withDerived.getRoots().get(i).getMultiplicity());
+                }
+                assertTrue(function + " " + order, withDerived.getEvaluations() < withComputed.getEvaluations());
+            }
+        }
+    }
+
+    @Test
+    public void testSolverConfig_18() throws Exception {
+        /** Adaptive stepping finds what fixed stepping does: roots on the axes, at vertices, multiple and poles */
+        String[] functions = { "z", "z^3", "(z-1)^2*(z+2)", "(z-1-i)^3", "(z-1.25-1.25*i)^2", "(z^2+1)^2", "sin(z)^2",
+                "z*(z-4)*(z-2)*(z-i)", "(z-1)*(z-1-0.001*i)*(z+3)", "(z-4)/sin(z)", "z/z^2", "1/cos(z)",
+                "(z-0.1)/((z-0.2)*(z-0.3))", "z*(z-4)/(e^z-sin(z)+cos(z))", "ln(z^2-3*i)" };
+        for (WindingKernel kernel : WindingKernel.values()) {
+            for (SearchOrder order : SearchOrder.values()) {
+                SolverConfig fixedSteps = SolverConfig.builder().windingKernel(kernel).searchOrder(order)
+                        .adaptiveStepping(false).build();
+                SolverConfig adaptiveSteps = fixedSteps.toBuilder().adaptiveStepping(true).build();
+                for (String function : functions) {
+                    CompiledComplexFunction f_z = new CompiledComplexFunction(function);
+                    SolveResult fixed = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                            SolveOptions.builder().config(fixedSteps).findPoles(true).build());
+                    SolveResult adaptive = Solver.solve(range, f_z, SolverAccuracy.HIGH,
+                            SolveOptions.builder().config(adaptiveSteps).findPoles(true).build());
+                    String message = function + " " + kernel + " " + order;
+                    assertSameRoots(message, fixed.getRoots(), adaptive.getRoots());
+                    assertSameRoots(message, fixed.getPoles(), adaptive.getPoles());
+                }
+            }
+        }
+    }
+
+    private static void assertSameRoots(String message, ArrayList<Root> expected, ArrayList<Root> actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message, expected.get(i).getValue().getRe(), actual.get(i).getValue().getRe(), 0);
+            assertEquals(message, expected.get(i).getValue().getIm(), actual.get(i).getValue().getIm(), 0);
+            assertEquals(message, expected.get(i).getMultiplicity(), actual.get(i).getMultiplicity());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
+import algorithm.solver.Root;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.Solver;
+import algorithm.solver.SolverAccuracy;
+
+/**
+ * Test the parallel Solver against the sequential one. Both are required to
+ * return exactly the same (sorted) solutions.
+ *
+ * @Author Piotr Machura
+ */
+public class TestSolverParallel {
+    static final int range = 5;
+    static final String[] functions = { "z", "sin(z)", "e^z-1", "z^2+z-i", "z^3-e^z", "1/sin(z)", "z/(e^z-e)",
+            "z*(z-4)*(z-2)*(z-i)", "z*(z-4)*cos(z)*e^z", "(z-4)/sin(z)" };
+
+    private static void assertSameSolutions(ArrayList<Root> expected, ArrayList<Root> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getValue().getRe(), actual.get(i).getValue().getRe(), 0);
+            assertEquals(expected.get(i).getValue().getIm(), actual.get(i).getValue().getIm(), 0);
+        }
+    }
+
+    @Test
+    public void testSolverParallel_1() throws CalculatorException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SolveOptions parallel = SolveOptions.builder().pool(pool).build();
+        for (String f_z : functions) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            for (SolverAccuracy acc : SolverAccuracy.values()) {
+                assertSameSolutions(Solver.solve(range, f, acc, SolveOptions.DEFAULT).getRoots(),
+                        Solver.solve(range, f, acc, parallel).getRoots());
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSolverParallel_2() throws CalculatorException {
+        /** Forking down to the smallest squares changes nothing either */
+        ForkJoinPool pool = new ForkJoinPool(4);
+        CompiledComplexFunction f = new CompiledComplexFunction("z^3-e^z");
+        assertSameSolutions(Solver.solve(range, f, SolverAccuracy.HIGH, SolveOptions.DEFAULT).getRoots(),
+                Solver.solve(range, f, SolverAccuracy.HIGH,
+                        SolveOptions.builder().pool(pool).sequentialSideRatio(0).build()).getRoots());
+        assertSameSolutions(Solver.solve(f, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots(),
+                Solver.solve(f, SolverAccuracy.MED, SolveOptions.builder().pool(pool).build()).getRoots());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSolverParallel_3() throws CalculatorException {
+        /** Probing candidate ranges in parallel may pick another range, but not other roots */
+        ForkJoinPool pool = new ForkJoinPool(4);
+        String[] far = { "(z-37+2*i)*e^(z/16)", "(z-12)*e^(z/4)", "(z-80)*cos(z/100)", "e^z" };
+        for (String f_z : far) {
+            CompiledComplexFunction f = new CompiledComplexFunction(f_z);
+            ArrayList<Root> expected = Solver.solve(f, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+            ArrayList<Root> actual = Solver.solve(f, SolverAccuracy.MED, SolveOptions.builder().pool(pool).build())
+                    .getRoots();
+            assertEquals(f_z, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(f_z, expected.get(i).getValue().getRe(), actual.get(i).getValue().getRe(), 0.001);
+                assertEquals(f_z, expected.get(i).getValue().getIm(), actual.get(i).getValue().getIm(), 0.001);
+            }
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,39 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+import algorithm.solver.Solver;
+
+/**
+ * Runs the Solver fixtures again with the PHASE winding kernel, which the
+ * solves not given a config use instead of the default QUADRANT one.
+ *
+ * @Author Piotr Machura
+ */
+@RunWith(Suite.class)
+@SuiteClasses({ TestSolver.class, TestSolverAuto.class })
+public class TestSolverPhase {
+
+    @BeforeClass
+    public static void usePhaseKernel() throws Exception {
+        File solverrc = File.createTempFile("solverrc", null);
+        solverrc.deleteOnExit();
+        OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(solverrc),
+                Charset.forName("UTF-8").newEncoder());
+        osw.write("5 5 100 1.8 200 0.95 1 PHASE");
+        osw.close();
+        Solver.readConfig(solverrc);
+    }
+
+    @AfterClass
+    public static void restoreKernel() {
+        Solver.restoreDefaultConfig();
+    }
+}
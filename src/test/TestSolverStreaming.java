@@ -0,0 +1,118 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import algorithm.parser.exception.CalculatorException;
+import algorithm.parser.function.CompiledComplexFunction;
+import algorithm.solver.Root;
+import algorithm.solver.RootListener;
+import algorithm.solver.SolveOptions;
+import algorithm.solver.SolveResult;
+import algorithm.solver.Solver;
+import algorithm.solver.SolverAccuracy;
+
+/**
+ * Test streaming roots to a RootListener and solving asynchronously. Every
+ * root of the final result has to be streamed first, and cancelling an
+ * asynchronous solve has to stop it.
+ *
+ * @Author Piotr Machura
+ */
+public class TestSolverStreaming {
+    static final int range = 5;
+
+    private static void assertStreamed(String f, Collection<Root> streamed, ArrayList<Root> roots) {
+        for (Root root : roots) {
+            boolean found = false;
+            for (Root r : streamed) {
+                found |= r.getValue().getRe() == root.getValue().getRe()
+                        && r.getValue().getIm() == root.getValue().getIm();
+            }
+            assertTrue(f + ": " + root + " was not streamed", found);
+        }
+    }
+
+    @Test
+    public void testSolverStreaming_1() throws CalculatorException {
+        String[] functions = { "z", "sin(z)", "z^3-e^z", "1/sin(z)", "(z-1)^3*(z+2)" };
+        for (String f : functions) {
+            final ArrayList<Root> streamed = new ArrayList<Root>();
+            SolveResult result = Solver.solve(range, new CompiledComplexFunction(f), SolverAccuracy.MED,
+                    SolveOptions.builder().listener(new RootListener() {
+                        @Override
+                        public void rootFound(Root root) {
+                            streamed.add(root);
+                        }
+                    }).build());
+            assertTrue(f, streamed.size() >= result.getRoots().size());
+            assertStreamed(f, streamed, result.getRoots());
+        }
+    }
+
+    @Test
+    public void testSolverStreaming_2() throws CalculatorException, InterruptedException, ExecutionException {
+        CompiledComplexFunction f_z = new CompiledComplexFunction("sin(z)");
+        ArrayList<Root> expected = Solver.solve(range, f_z, SolverAccuracy.MED, SolveOptions.DEFAULT).getRoots();
+        final Collection<Root> streamed = new ConcurrentLinkedQueue<Root>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SolveResult result = Solver.solveAsync(range, f_z, SolverAccuracy.MED,
+                    SolveOptions.builder().pool(pool).listener(new RootListener() {
+                        @Override
+                        public void rootFound(Root root) {
+                            streamed.add(root);
+                        }
+                    }).build()).get();
+            assertTrue(!result.isPartial());
+            assertEquals(expected.size(), result.getRoots().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getValue().getRe(), result.getRoots().get(i).getValue().getRe(), 0);
+                assertEquals(expected.get(i).getValue().getIm(), result.getRoots().get(i).getValue().getIm(), 0);
+            }
+            assertStreamed("sin(z)", streamed, result.getRoots());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSolverStreaming_3() throws CalculatorException, InterruptedException {
+        /** sin(10*z) has 31 roots in range 5, the solve is cancelled after the first one */
+        final AtomicInteger streamed = new AtomicInteger();
+        final ArrayList<CompletableFuture<SolveResult>> future = new ArrayList<CompletableFuture<SolveResult>>();
+        synchronized (future) {
+            future.add(Solver.solveAsync(range, new CompiledComplexFunction("sin(10*z)"), SolverAccuracy.MED,
+                    SolveOptions.builder().listener(new RootListener() {
+                        @Override
+                        public void rootFound(Root root) {
+                            streamed.incrementAndGet();
+                            synchronized (future) {
+                                future.get(0).cancel(true);
+                            }
+                        }
+                    }).build()));
+        }
+        /** Give the solve the time to run to the end, were it not stopped */
+        Thread.sleep(1000);
+        assertTrue(future.get(0).isCancelled());
+        assertTrue(streamed.get() < 31);
+    }
+
+    @Test
+    public void testSolverStreaming_4() throws CalculatorException, InterruptedException, ExecutionException {
+        /** Without a pool of its own the solve runs on the common pool */
+        SolveResult result = Solver.solveAsync(range, new CompiledComplexFunction("z^2+1"), SolverAccuracy.LOW,
+                SolveOptions.DEFAULT).get();
+        assertEquals(2, result.getRoots().size());
+        assertTrue(Solver.solve(range, "sin(z", SolverAccuracy.LOW).isEmpty());
+    }
+}